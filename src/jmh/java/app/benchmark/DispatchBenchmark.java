@@ -0,0 +1,71 @@
+package app.benchmark;
+
+import app.domain.ElevateRequest;
+import app.domain.Lift;
+import app.domain.enums.Direction;
+import app.service.LiftMetrics;
+import app.service.impl.AbstractLiftEngineService;
+import app.service.impl.CostBasedDispatchStrategy;
+import app.service.impl.DefaultLiftRequestsDispatchingService;
+import app.service.impl.RuleBasedDispatchStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+
+    private static final int FLOORS = 100;
+
+    @Param({"4", "64", "1024"})
+    private int lifts;
+
+    @Param({"rules", "lowest-wait"})
+    private String strategy;
+
+    private AbstractLiftEngineService engine;
+
+    private DefaultLiftRequestsDispatchingService dispatcher;
+
+    private ElevateRequest[] requests;
+
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        engine = Engines.startEventDriven(lifts, FLOORS);
+        dispatcher = new DefaultLiftRequestsDispatchingService(engine, "lowest-wait".equals(strategy)
+                ? new CostBasedDispatchStrategy(LiftMetrics.NONE)
+                : new RuleBasedDispatchStrategy(LiftMetrics.NONE), LiftMetrics.NONE);
+        final Random random = new Random(42);
+        requests = new ElevateRequest[1024];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = ElevateRequest.builder()
+                    .floorNumber(random.nextInt(FLOORS))
+                    .direction(random.nextBoolean() ? Direction.UP : Direction.DOWN)
+                    .build();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public void dispatchLiftRequest() {
+        dispatcher.dispatchLiftRequest(requests[cursor++ & 1023]);
+    }
+
+    @Benchmark
+    public Map<String, Lift> currentLiftsStateSnapshot() {
+        return engine.getCurrentLiftsStateSnapshot();
+    }
+}
@@ -0,0 +1,91 @@
+package app.benchmark;
+
+import app.config.LiftsConfiguration;
+import app.service.LiftEventListener;
+import app.service.impl.AbstractLiftEngineService;
+import app.service.impl.EventDrivenLiftEngineService;
+import app.service.impl.VirtualLiftClock;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One stop request served end to end: the lift departs, passes floors, stops and parks again, on a
+ * virtual clock so the loop runs flat out. Run with {@code -prof gc}: the profiler counts what every
+ * thread allocates, so gc.alloc.rate.norm is the engine's allocation per served stop. Simulated
+ * passengers stay off, as their presses would keep the lift busy and one operation would span many stops.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+@State(Scope.Benchmark)
+public class EngineLoopBenchmark {
+
+    private static final int FLOORS = 100;
+
+    @Param({"1", "16"})
+    private int lifts;
+
+    private AbstractLiftEngineService engine;
+
+    private String[] ids;
+
+    private int[] floors;
+
+    private int cursor;
+
+    private volatile int awaitedLift;
+
+    private volatile int awaitedFloor;
+
+    private volatile boolean served;
+
+    @Setup
+    public void setUp() {
+        final LiftsConfiguration liftsConfiguration = new LiftsConfiguration();
+        liftsConfiguration.setSecondsPerFloor(1);
+        liftsConfiguration.setSimulatedPassengers(false);
+        liftsConfiguration.setRandomSeed(42L);
+        engine = new EventDrivenLiftEngineService(liftsConfiguration, new VirtualLiftClock());
+        engine.setLiftsQuantity(lifts);
+        engine.setFloorsQuantity(FLOORS);
+        engine.addLiftEventListener(new LiftEventListener() {
+            @Override
+            public void registerLifts(List<String> liftIds, int floorsQuantity) {
+                ids = liftIds.toArray(String[]::new);
+            }
+
+            @Override
+            public void onStop(int lift, int floor, long nanoTime) {
+                if (lift == awaitedLift && floor == awaitedFloor) {
+                    served = true;
+                }
+            }
+        });
+        engine.initialize();
+        final Random random = new Random(42);
+        floors = random.ints(4096, 0, FLOORS).toArray();
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public void serveStop() {
+        final int lift = cursor % lifts;
+        final int floor = floors[cursor++ & (floors.length - 1)];
+        served = false;
+        awaitedFloor = floor;
+        awaitedLift = lift;
+        engine.enqueueStopRequest(ids[lift], floor);
+        while (!served) {
+            Thread.onSpinWait();
+        }
+    }
+}
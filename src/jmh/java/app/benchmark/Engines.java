@@ -0,0 +1,27 @@
+package app.benchmark;
+
+import app.config.LiftsConfiguration;
+import app.service.impl.AbstractLiftEngineService;
+import app.service.impl.EventDrivenLiftEngineService;
+import app.service.impl.ScaledLiftClock;
+
+final class Engines {
+
+    /**
+     * Lifts take an hour per floor, so state barely changes underneath the measured calls.
+     */
+    static final int SECONDS_PER_FLOOR = 3600;
+
+    private Engines() {
+    }
+
+    static AbstractLiftEngineService startEventDriven(int liftsQuantity, int floorsQuantity) {
+        final LiftsConfiguration liftsConfiguration = new LiftsConfiguration();
+        liftsConfiguration.setSecondsPerFloor(SECONDS_PER_FLOOR);
+        final AbstractLiftEngineService engine = new EventDrivenLiftEngineService(liftsConfiguration, new ScaledLiftClock(1));
+        engine.setLiftsQuantity(liftsQuantity);
+        engine.setFloorsQuantity(floorsQuantity);
+        engine.initialize();
+        return engine;
+    }
+}
@@ -0,0 +1,46 @@
+package app.benchmark;
+
+import app.service.impl.AbstractLiftEngineService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Producers contend on the same few lifts; run with {@code -t N} for N producer threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+@Threads(4)
+@State(Scope.Benchmark)
+public class EnqueueStopRequestBenchmark {
+
+    private static final int FLOORS = 100;
+
+    @Param({"1", "4", "64"})
+    private int lifts;
+
+    private AbstractLiftEngineService engine;
+
+    private String[] ids;
+
+    @Setup
+    public void setUp() {
+        engine = Engines.startEventDriven(lifts, FLOORS);
+        ids = engine.getCurrentLiftsStateSnapshot().keySet().toArray(String[]::new);
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public void enqueueStopRequest() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        engine.enqueueStopRequest(ids[random.nextInt(ids.length)], random.nextInt(FLOORS));
+    }
+}
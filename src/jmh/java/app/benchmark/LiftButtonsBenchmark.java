@@ -0,0 +1,52 @@
+package app.benchmark;
+
+import app.domain.LiftButtons;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+@State(Scope.Thread)
+public class LiftButtonsBenchmark {
+
+    private static final int PRESSED_BUTTONS = 3;
+
+    @Param({"25", "100", "500"})
+    private int floors;
+
+    private LiftButtons buttons;
+
+    private int[] currentFloors;
+
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        buttons = new LiftButtons(floors);
+        for (int i = 0; i < PRESSED_BUTTONS; i++) {
+            buttons.turnOnButtonAtFloor(random.nextInt(floors));
+        }
+        currentFloors = random.ints(1024, 0, floors).toArray();
+    }
+
+    @Benchmark
+    public int nextOnTheWayUp() {
+        return buttons.getNextOnTheWayUp(currentFloors[cursor++ & 1023]);
+    }
+
+    @Benchmark
+    public int nextOnTheWayDown() {
+        return buttons.getNextOnTheWayDown(currentFloors[cursor++ & 1023]);
+    }
+
+    @Benchmark
+    public boolean everyButtonTurnedOff() {
+        return buttons.isEveryButtonTurnedOff();
+    }
+}
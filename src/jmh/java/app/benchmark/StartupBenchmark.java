@@ -0,0 +1,67 @@
+package app.benchmark;
+
+import app.config.LiftsConfiguration;
+import app.domain.ElevateRequest;
+import app.domain.LiftAssignment;
+import app.domain.enums.Direction;
+import app.service.impl.AbstractLiftEngineService;
+import app.service.impl.DefaultLiftEngineService;
+import app.service.impl.DefaultLiftRequestsDispatchingService;
+import app.service.impl.EventDrivenLiftEngineService;
+import app.service.impl.MicrometerLiftMetrics;
+import app.service.impl.RuleBasedDispatchStrategy;
+import app.service.impl.ScaledLiftClock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from building a fleet's engine to the first hall call being dispatched, the way a building
+ * shard starts, metrics included. Each invocation starts a new fleet; -wi 0 -f 10 measures cold starts.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Dlogback.configurationFile=logback-jmh.xml", "-Xss256k"})
+@State(Scope.Thread)
+public class StartupBenchmark {
+
+    private static final int FLOORS = 100;
+
+    @Param({"10", "1000", "10000"})
+    private int lifts;
+
+    @Param({"threaded", "event-driven"})
+    private String engineType;
+
+    @Param({"false", "true"})
+    private boolean lazyStart;
+
+    private AbstractLiftEngineService engine;
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public LiftAssignment timeToFirstDispatch() {
+        final LiftsConfiguration liftsConfiguration = new LiftsConfiguration();
+        liftsConfiguration.setSecondsPerFloor(Engines.SECONDS_PER_FLOOR);
+        liftsConfiguration.setLazyStart(lazyStart);
+        final ScaledLiftClock liftClock = new ScaledLiftClock(1);
+        engine = "threaded".equals(engineType)
+                ? new DefaultLiftEngineService(liftsConfiguration, liftClock)
+                : new EventDrivenLiftEngineService(liftsConfiguration, liftClock);
+        engine.setLiftsQuantity(lifts);
+        engine.setFloorsQuantity(FLOORS);
+        final MicrometerLiftMetrics liftMetrics = new MicrometerLiftMetrics(new SimpleMeterRegistry(), liftClock, LiftsConfiguration.DEFAULT_BUILDING);
+        liftMetrics.setLazyLiftMeters(lazyStart);
+        engine.setLiftMetrics(liftMetrics);
+        engine.initialize();
+        return new DefaultLiftRequestsDispatchingService(engine, new RuleBasedDispatchStrategy(liftMetrics), liftMetrics)
+                .dispatchLiftRequest(ElevateRequest.builder().floorNumber(FLOORS / 2).direction(Direction.UP).build());
+    }
+}
@@ -0,0 +1,156 @@
+package app.loadtest;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes calls to a running application's binary hall call port as fast as it acknowledges them,
+ * every connection keeping up to {@code window} frames in flight; call times are ignored, the offered
+ * calls only make up the floors and directions. Frames are laid out as app.service.impl.BinaryHallCallServer
+ * expects, and the latency measured is from writing a frame to reading its ack.
+ */
+final class BinaryLoadTest {
+
+    private static final int FRAME_SIZE = 16;
+
+    private static final int ACK_SIZE = 16;
+
+    private static final int CALLS_PER_GRAB = 256;
+
+    private final InetSocketAddress address;
+
+    private final int building;
+
+    private final int connections;
+
+    private final int window;
+
+    private final LoadTestReport report = new LoadTestReport();
+
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    private int[] floors;
+
+    private byte[] directions;
+
+    private int callsQuantity;
+
+    BinaryLoadTest(InetSocketAddress address, int building, int connections, int window) {
+        this.address = address;
+        this.building = building;
+        this.connections = connections;
+        this.window = window;
+    }
+
+    LoadTestReport run(Iterator<PassengerCall> calls, long durationNanos) throws Exception {
+        load(calls, durationNanos);
+        final List<Thread> threads = new ArrayList<>();
+        final List<Exception> errors = new ArrayList<>();
+        final long wallStart = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            final Thread thread = new Thread(() -> {
+                try {
+                    push();
+                } catch (IOException e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            }, "binary-load-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        final long wallNanos = System.nanoTime() - wallStart;
+        if (!errors.isEmpty()) {
+            throw errors.get(0);
+        }
+        report.finish(wallNanos, wallNanos, wallNanos, 0, 0);
+        return report;
+    }
+
+    private void load(Iterator<PassengerCall> calls, long durationNanos) {
+        floors = new int[1024];
+        directions = new byte[1024];
+        while (calls.hasNext()) {
+            final PassengerCall call = calls.next();
+            if (call.getAtNanos() >= durationNanos) {
+                break;
+            }
+            if (callsQuantity == floors.length) {
+                floors = Arrays.copyOf(floors, callsQuantity * 2);
+                directions = Arrays.copyOf(directions, callsQuantity * 2);
+            }
+            floors[callsQuantity] = call.getFloor();
+            directions[callsQuantity] = (byte) call.getDirection().ordinal();
+            callsQuantity++;
+        }
+    }
+
+    private void push() throws IOException {
+        final ByteBuffer out = ByteBuffer.allocateDirect(FRAME_SIZE * window);
+        final ByteBuffer in = ByteBuffer.allocateDirect(ACK_SIZE * window);
+        final long[] sentNanos = new long[window];
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            long nextSequence = 0;
+            long acknowledged = 0;
+            int next = 0;
+            int last = 0;
+            while (true) {
+                while (nextSequence - acknowledged < window) {
+                    if (next == last) {
+                        next = cursor.getAndAdd(CALLS_PER_GRAB);
+                        last = Math.min(next + CALLS_PER_GRAB, callsQuantity);
+                        if (next >= last) {
+                            next = last;
+                            break;
+                        }
+                    }
+                    out.putLong(nextSequence).putShort((short) building).putShort((short) floors[next])
+                            .put(directions[next]).put((byte) 0).putShort((short) 0);
+                    sentNanos[(int) (nextSequence % window)] = System.nanoTime();
+                    nextSequence++;
+                    next++;
+                }
+                if (out.position() > 0) {
+                    out.flip();
+                    while (out.hasRemaining()) {
+                        channel.write(out);
+                    }
+                    out.clear();
+                }
+                if (acknowledged == nextSequence) {
+                    return;
+                }
+                if (channel.read(in) < 0) {
+                    throw new IOException("Connection closed with calls awaiting an ack");
+                }
+                in.flip();
+                final long now = System.nanoTime();
+                while (in.remaining() >= ACK_SIZE) {
+                    final long sequence = in.getLong();
+                    final byte status = in.get();
+                    in.position(in.position() + ACK_SIZE - 9);
+                    if (status == 0) {
+                        report.recordDispatch(now - sentNanos[(int) (sequence % window)]);
+                    } else {
+                        report.recordFailure();
+                    }
+                    acknowledged++;
+                }
+                in.compact();
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package app.loadtest;
+
+import app.config.LiftsConfiguration;
+import app.config.ParkingType;
+import app.domain.ElevateRequest;
+import app.domain.enums.Direction;
+import app.service.DispatchStrategy;
+import app.service.LiftClock;
+import app.service.LiftEventListener;
+import app.service.LiftMetrics;
+import app.service.LiftRequestsDispatchingService;
+import app.service.impl.DefaultLiftRequestsDispatchingService;
+import app.service.impl.DemandParkingStrategy;
+import app.service.impl.EventDrivenLiftEngineService;
+import app.service.impl.HallCallDemand;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Feeds calls to the dispatcher on the event-driven engine's own timeline and follows each
+ * passenger: they board the first car that stops at their floor and has room for them, press
+ * their destination in it and leave when that car stops there. Passengers left behind by a full
+ * car call again once it has left.
+ */
+final class InProcessLoadTest implements LiftEventListener {
+
+    private final LiftClock liftClock;
+
+    private final EventDrivenLiftEngineService engine;
+
+    private final LiftRequestsDispatchingService dispatcher;
+
+    private final LoadTestReport report = new LoadTestReport();
+
+    private final List<List<Passenger>> waitingByFloor;
+
+    private List<String> liftIds;
+
+    private List<List<Passenger>> ridingByLift;
+
+    /**
+     * Floor each lift left passengers behind at, to call again from when it departs; -1 for none.
+     */
+    private int[] leftBehindAt;
+
+    private Iterator<PassengerCall> calls;
+
+    private long startNanos;
+
+    private long callsUntilNanos;
+
+    /**
+     * Set at the end of the run; on a virtual clock the lifts race ahead until the engine stops.
+     */
+    private boolean finished;
+
+    /**
+     * @param seed of the engine's simulated tonnage and in-car button presses
+     */
+    InProcessLoadTest(int liftsQuantity, int floorsQuantity, Duration travelTimePerFloor, LiftClock liftClock,
+                      DispatchStrategy dispatchStrategy, ParkingType parking, long seed) {
+        final LiftsConfiguration liftsConfiguration = new LiftsConfiguration();
+        liftsConfiguration.setTravelTimePerFloor(travelTimePerFloor);
+        liftsConfiguration.setRandomSeed(seed);
+        liftsConfiguration.setSimulatedPassengers(false);
+        this.liftClock = liftClock;
+        this.engine = new EventDrivenLiftEngineService(liftsConfiguration, liftClock);
+        this.engine.setLiftsQuantity(liftsQuantity);
+        this.engine.setFloorsQuantity(floorsQuantity);
+        this.engine.addLiftEventListener(this);
+        final DefaultLiftRequestsDispatchingService dispatcher = new DefaultLiftRequestsDispatchingService(engine, dispatchStrategy, LiftMetrics.NONE);
+        if (parking == ParkingType.DEMAND) {
+            final HallCallDemand hallCallDemand = new HallCallDemand(liftClock, 0, liftsConfiguration.getParkingDemandBucket(), floorsQuantity);
+            dispatcher.setHallCallDemand(hallCallDemand);
+            this.engine.setParkingStrategy(new DemandParkingStrategy(hallCallDemand));
+        }
+        this.dispatcher = dispatcher;
+        this.waitingByFloor = IntStream.range(0, floorsQuantity)
+                .mapToObj(floor -> new ArrayList<Passenger>())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Injects calls due within {@code durationNanos}, then lets the lifts run {@code drainNanos}
+     * longer so late passengers can finish their journeys.
+     */
+    LoadTestReport run(Iterator<PassengerCall> calls, long durationNanos, long drainNanos) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        engine.initialize();
+        try {
+            this.calls = calls;
+            startNanos = liftClock.nanoTime();
+            callsUntilNanos = durationNanos;
+            final long wallStart = System.nanoTime();
+            scheduleNextCall();
+            engine.scheduleAt(startNanos + durationNanos + drainNanos, () -> {
+                synchronized (this) {
+                    report.finish(durationNanos, liftClock.nanoTime() - startNanos, System.nanoTime() - wallStart,
+                            waitingByFloor.stream().mapToLong(List::size).sum(),
+                            ridingByLift.stream().mapToLong(List::size).sum());
+                    finished = true;
+                }
+                done.countDown();
+            });
+            done.await();
+        } finally {
+            engine.shutdown();
+        }
+        return report;
+    }
+
+    private void scheduleNextCall() {
+        if (calls.hasNext()) {
+            final PassengerCall call = calls.next();
+            if (call.getAtNanos() < callsUntilNanos) {
+                engine.scheduleAt(startNanos + call.getAtNanos(), () -> call(call));
+            }
+        }
+    }
+
+    private void call(PassengerCall call) {
+        synchronized (this) {
+            waitingByFloor.get(call.getFloor()).add(new Passenger(liftClock.nanoTime(), call.getDestination()));
+        }
+        dispatch(call.getFloor(), call.getDirection());
+        scheduleNextCall();
+    }
+
+    private void dispatch(int floor, Direction direction) {
+        final long started = System.nanoTime();
+        try {
+            dispatcher.dispatchLiftRequest(ElevateRequest.builder()
+                    .floorNumber(floor)
+                    .direction(direction)
+                    .build());
+            report.recordDispatch(System.nanoTime() - started);
+        } catch (RuntimeException e) {
+            report.recordFailure();
+        }
+    }
+
+    @Override
+    public synchronized void registerLifts(List<String> liftIds, int floorsQuantity) {
+        this.liftIds = liftIds;
+        this.ridingByLift = liftIds.stream()
+                .map(id -> new ArrayList<Passenger>())
+                .collect(Collectors.toList());
+        this.leftBehindAt = new int[liftIds.size()];
+        Arrays.fill(leftBehindAt, -1);
+    }
+
+    /**
+     * Calling again only once the full car has left keeps it from being sent back to the floor it stands at.
+     */
+    @Override
+    public synchronized void onDeparture(int lift, int floor, Direction direction, long nanoTime) {
+        final int recallFloor = leftBehindAt[lift];
+        leftBehindAt[lift] = -1;
+        if (!finished && recallFloor >= 0 && !waitingByFloor.get(recallFloor).isEmpty()) {
+            final Passenger first = waitingByFloor.get(recallFloor).get(0);
+            dispatch(recallFloor, (first.destination > recallFloor) ? Direction.UP : Direction.DOWN);
+        }
+    }
+
+    @Override
+    public synchronized void onFloorArrival(int lift, int floor, long nanoTime) {
+        if (!finished) {
+            report.recordFloorTravelled();
+        }
+    }
+
+    @Override
+    public synchronized void onStop(int lift, int floor, long nanoTime) {
+        if (finished) {
+            return;
+        }
+        final List<Passenger> riding = ridingByLift.get(lift);
+        final int ridingBefore = riding.size();
+        riding.removeIf(passenger -> {
+            if (passenger.destination != floor) {
+                return false;
+            }
+            report.recordJourney(nanoTime - passenger.calledNanos);
+            return true;
+        });
+
+        final List<Passenger> waiting = waitingByFloor.get(floor);
+        final int alighting = ridingBefore - riding.size();
+        if (alighting == 0 && waiting.isEmpty()) {
+            return;
+        }
+        final int boarding = engine.transferPassengers(liftIds.get(lift), alighting, waiting.size());
+        final List<Passenger> boarded = waiting.subList(0, boarding);
+        for (Passenger passenger : boarded) {
+            report.recordWait(nanoTime - passenger.calledNanos);
+            riding.add(passenger);
+            engine.enqueueStopRequest(liftIds.get(lift), passenger.destination);
+        }
+        boarded.clear();
+        report.recordBoarding(nanoTime - startNanos, boarding);
+        if (!waiting.isEmpty()) {
+            for (Passenger passenger : waiting) {
+                if (!passenger.leftBehind) {
+                    passenger.leftBehind = true;
+                    report.recordLeftBehind(1);
+                }
+            }
+            leftBehindAt[lift] = floor;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static final class Passenger {
+
+        private final long calledNanos;
+
+        private final int destination;
+
+        /**
+         * Whether a full car has already left this passenger behind, who is counted once.
+         */
+        private boolean leftBehind;
+    }
+}
@@ -0,0 +1,185 @@
+package app.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SynchronizedHistogram;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dispatch latency is wall-clock time spent handing a call over; wait (call to the first car
+ * serving the floor) and journey (call to arrival at the destination) are simulation time.
+ * Floors travelled by all cars stand in for the energy spent. Handling capacity is the most
+ * passengers boarded in any five minutes of simulation time, counted in fixed windows.
+ */
+final class LoadTestReport {
+
+    private static final long HANDLING_CAPACITY_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final Histogram dispatchLatency = new SynchronizedHistogram(3);
+
+    private final Histogram waitTime = new SynchronizedHistogram(3);
+
+    private final Histogram journeyTime = new SynchronizedHistogram(3);
+
+    private final LongAdder dispatched = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder floorsTravelled = new LongAdder();
+
+    private final LongAdder leftBehind = new LongAdder();
+
+    private final Map<Long, Long> boardedPerWindow = new ConcurrentHashMap<>();
+
+    /**
+     * Highest handling capacity of the runs added to this one.
+     */
+    private long addedPeakHandlingCapacity;
+
+    private long callWindowNanos;
+
+    private long simulatedNanos;
+
+    private long wallNanos;
+
+    private long stillWaiting;
+
+    private long stillRiding;
+
+    void recordDispatch(long latencyNanos) {
+        dispatched.increment();
+        dispatchLatency.recordValue(latencyNanos);
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    void recordFailure() {
+        failed.increment();
+    }
+
+    void recordWait(long nanos) {
+        waitTime.recordValue(nanos);
+    }
+
+    void recordJourney(long nanos) {
+        journeyTime.recordValue(nanos);
+    }
+
+    void recordFloorTravelled() {
+        floorsTravelled.increment();
+    }
+
+    void recordBoarding(long simulatedNanos, int passengers) {
+        boardedPerWindow.merge(simulatedNanos / HANDLING_CAPACITY_WINDOW_NANOS, (long) passengers, Long::sum);
+    }
+
+    void recordLeftBehind(int passengers) {
+        leftBehind.add(passengers);
+    }
+
+    void finish(long callWindowNanos, long simulatedNanos, long wallNanos, long stillWaiting, long stillRiding) {
+        this.callWindowNanos = callWindowNanos;
+        this.simulatedNanos = simulatedNanos;
+        this.wallNanos = wallNanos;
+        this.stillWaiting = stillWaiting;
+        this.stillRiding = stillRiding;
+    }
+
+    /**
+     * Adds up another finished run, e.g. the same scenario with another seed.
+     */
+    void add(LoadTestReport other) {
+        dispatchLatency.add(other.dispatchLatency);
+        waitTime.add(other.waitTime);
+        journeyTime.add(other.journeyTime);
+        dispatched.add(other.dispatched.sum());
+        rejected.add(other.rejected.sum());
+        failed.add(other.failed.sum());
+        floorsTravelled.add(other.floorsTravelled.sum());
+        leftBehind.add(other.leftBehind.sum());
+        addedPeakHandlingCapacity = Math.max(addedPeakHandlingCapacity, other.getPeakHandlingCapacity());
+        callWindowNanos += other.callWindowNanos;
+        simulatedNanos += other.simulatedNanos;
+        wallNanos += other.wallNanos;
+        stillWaiting += other.stillWaiting;
+        stillRiding += other.stillRiding;
+    }
+
+    long getDispatched() {
+        return dispatched.sum();
+    }
+
+    long getFloorsTravelled() {
+        return floorsTravelled.sum();
+    }
+
+    long getPeakHandlingCapacity() {
+        return Math.max(addedPeakHandlingCapacity, boardedPerWindow.values().stream().mapToLong(Long::longValue).max().orElse(0));
+    }
+
+    long getLeftBehind() {
+        return leftBehind.sum();
+    }
+
+    long getUnfinished() {
+        return stillWaiting + stillRiding;
+    }
+
+    long getWallNanos() {
+        return wallNanos;
+    }
+
+    double getMeanWaitSeconds() {
+        return waitTime.getMean() / 1e9;
+    }
+
+    double getWaitSeconds(double percentile) {
+        return waitTime.getValueAtPercentile(percentile) / 1e9;
+    }
+
+    double getMeanJourneySeconds() {
+        return journeyTime.getMean() / 1e9;
+    }
+
+    void print(PrintStream out) {
+        final long calls = dispatched.sum() + rejected.sum() + failed.sum();
+        final double wallSeconds = wallNanos / 1e9;
+        out.printf("Ran %.1f s of simulation in %.2f s of wall time (%.0fx)%n",
+                simulatedNanos / 1e9, wallSeconds, simulatedNanos / (double) Math.max(1, wallNanos));
+        out.printf("Calls: %d dispatched, %d rejected, %d failed; %.1f calls/s offered, %.1f calls/s achieved%n",
+                dispatched.sum(), rejected.sum(), failed.sum(),
+                calls / Math.max(1e-9, callWindowNanos / 1e9), dispatched.sum() / Math.max(1e-9, wallSeconds));
+        print(out, "Dispatch latency (us)", dispatchLatency, TimeUnit.MICROSECONDS.toNanos(1));
+        if (waitTime.getTotalCount() > 0 || stillWaiting > 0) {
+            print(out, "Wait time (s)", waitTime, TimeUnit.SECONDS.toNanos(1));
+            print(out, "Journey time (s)", journeyTime, TimeUnit.SECONDS.toNanos(1));
+            out.printf("Unfinished at the end: %d waiting, %d riding%n", stillWaiting, stillRiding);
+            out.printf("Handling capacity: %d passengers in the busiest 5 minutes, %d left behind by full cars%n",
+                    getPeakHandlingCapacity(), leftBehind.sum());
+        }
+        if (floorsTravelled.sum() > 0) {
+            out.printf("Floors travelled: %d, %.2f per call%n", floorsTravelled.sum(), floorsTravelled.sum() / (double) Math.max(1, calls));
+        }
+    }
+
+    private static void print(PrintStream out, String title, Histogram histogram, long unitNanos) {
+        if (histogram.getTotalCount() == 0) {
+            out.printf("%-22s no samples%n", title);
+            return;
+        }
+        final double unit = unitNanos;
+        out.printf("%-22s n=%d mean=%.2f p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n", title,
+                histogram.getTotalCount(), histogram.getMean() / unit,
+                histogram.getValueAtPercentile(50) / unit, histogram.getValueAtPercentile(90) / unit,
+                histogram.getValueAtPercentile(99) / unit, histogram.getValueAtPercentile(99.9) / unit,
+                histogram.getMaxValue() / unit);
+    }
+}
@@ -0,0 +1,192 @@
+package app.loadtest;
+
+import app.config.ParkingType;
+import app.service.DispatchStrategy;
+import app.service.LiftClock;
+import app.service.LiftMetrics;
+import app.service.impl.CostBasedDispatchStrategy;
+import app.service.impl.RuleBasedDispatchStrategy;
+import app.service.impl.ScaledLiftClock;
+import app.service.impl.VirtualLiftClock;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Replays recorded or synthetic passenger traffic and prints throughput, dispatch latency,
+ * wait and journey times. Options are given as --name=value:
+ * <pre>
+ * mode        in-process (default), rest, binary or sweep
+ * pattern     up-peak (default), two-way, down-peak or interfloor
+ * rate        calls per second of simulation time, 0.5 by default
+ * duration    how long calls keep coming, e.g. 1h (default), 90m, 30s
+ * drain       how long lifts keep running after the last call, 10m by default
+ * seed        random seed of the synthetic traffic, 42 by default
+ * trace       replay this trace file instead of synthetic traffic
+ * record      write the synthetic traffic to this trace file and exit
+ * lifts       4 by default (in-process)
+ * floors      25 by default
+ * travel-time time per floor, 1s by default (in-process)
+ * clock       virtual (default) or scaled (in-process)
+ * strategy    rules (default) or lowest-wait (in-process)
+ * parking     ground (default) or demand, where idle lifts wait (in-process)
+ * speed-up    simulation speed-up of a scaled clock or of the REST replay, 60 by default
+ * url         application base url, http://localhost:8080 by default (rest, binary takes its host)
+ * connections calls awaiting a response at most, 256 by default (rest), or connections, 4 by default (binary)
+ * port        binary hall call tcp port of the application, 9090 by default (binary)
+ * building    position of the building in the application's lift.buildings, 0 by default (binary)
+ * window      frames awaiting an ack per connection, 1024 by default (binary)
+ * repeats     runs of each scenario with consecutive seeds, 1 by default (sweep)
+ * parallelism simulations running at once, one per core by default (sweep)
+ * </pre>
+ * A sweep takes comma-separated values of lifts, floors, strategy, parking, pattern, travel-time and rate,
+ * e.g. --lifts=4,6,8 --strategy=rules,lowest-wait, and simulates every combination on a virtual clock.
+ */
+public final class LoadTestRunner {
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = parseOptions(args);
+        final int floorsQuantity = Integer.parseInt(options.getOrDefault("floors", "25"));
+        final long durationNanos = parseDuration(options.getOrDefault("duration", "1h")).toNanos();
+        final double speedUp = Double.parseDouble(options.getOrDefault("speed-up", "60"));
+
+        if (options.containsKey("record")) {
+            final long written = TraceFile.write(Paths.get(options.get("record")), syntheticTraffic(options, floorsQuantity, durationNanos));
+            System.out.printf("Recorded %d calls to %s%n", written, options.get("record"));
+            return;
+        }
+
+        if ("sweep".equals(options.get("mode"))) {
+            new ParameterSweep(
+                    values(options, "lifts", "4", Integer::parseInt),
+                    values(options, "floors", "25", Integer::parseInt),
+                    values(options, "strategy", "rules", Function.identity()),
+                    values(options, "parking", "ground", Function.identity()),
+                    values(options, "pattern", "up-peak", Function.identity()),
+                    values(options, "travel-time", "1s", Function.identity()),
+                    values(options, "rate", "0.5", Double::parseDouble),
+                    Integer.parseInt(options.getOrDefault("repeats", "1")),
+                    Long.parseLong(options.getOrDefault("seed", "42")),
+                    durationNanos,
+                    parseDuration(options.getOrDefault("drain", "10m")).toNanos())
+                    .run(Integer.parseInt(options.getOrDefault("parallelism", String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                            System.out);
+            return;
+        }
+
+        final Iterator<PassengerCall> calls;
+        if (options.containsKey("trace")) {
+            final Path trace = Paths.get(options.get("trace"));
+            calls = TraceFile.read(trace);
+            System.out.printf("Replaying %s%n", trace);
+        } else {
+            calls = syntheticTraffic(options, floorsQuantity, durationNanos);
+            System.out.printf("Generating %s traffic at %s calls/s%n", options.getOrDefault("pattern", "up-peak"), options.getOrDefault("rate", "0.5"));
+        }
+
+        try {
+            if ("rest".equals(options.getOrDefault("mode", "in-process"))) {
+                final RestLoadTest loadTest = new RestLoadTest(URI.create(options.getOrDefault("url", "http://localhost:8080")), speedUp,
+                        Integer.parseInt(options.getOrDefault("connections", "256")));
+                loadTest.run(calls, durationNanos).print(System.out);
+                System.out.printf("Server queue: %s%n", loadTest.fetchQueueStats());
+            } else if ("binary".equals(options.get("mode"))) {
+                new BinaryLoadTest(new InetSocketAddress(URI.create(options.getOrDefault("url", "http://localhost:8080")).getHost(),
+                        Integer.parseInt(options.getOrDefault("port", "9090"))),
+                        Integer.parseInt(options.getOrDefault("building", "0")),
+                        Integer.parseInt(options.getOrDefault("connections", "4")),
+                        Integer.parseInt(options.getOrDefault("window", "1024")))
+                        .run(calls, durationNanos)
+                        .print(System.out);
+            } else {
+                final int liftsQuantity = Integer.parseInt(options.getOrDefault("lifts", "4"));
+                final LiftClock liftClock = "scaled".equals(options.getOrDefault("clock", "virtual"))
+                        ? new ScaledLiftClock(speedUp)
+                        : new VirtualLiftClock();
+                final DispatchStrategy dispatchStrategy = dispatchStrategy(options.getOrDefault("strategy", "rules"));
+                System.out.printf("%d lifts, %d floors, %s dispatching, %s parking%n", liftsQuantity, floorsQuantity,
+                        options.getOrDefault("strategy", "rules"), options.getOrDefault("parking", "ground"));
+                new InProcessLoadTest(liftsQuantity, floorsQuantity, parseDuration(options.getOrDefault("travel-time", "1s")), liftClock,
+                        dispatchStrategy, parkingType(options.getOrDefault("parking", "ground")), Long.parseLong(options.getOrDefault("seed", "42")))
+                        .run(calls, durationNanos, parseDuration(options.getOrDefault("drain", "10m")).toNanos())
+                        .print(System.out);
+            }
+        } finally {
+            if (calls instanceof TraceFile.Reader) {
+                ((TraceFile.Reader) calls).close();
+            }
+        }
+    }
+
+    private static Iterator<PassengerCall> syntheticTraffic(Map<String, String> options, int floorsQuantity, long durationNanos) {
+        return new SyntheticTraffic(
+                TrafficPattern.of(options.getOrDefault("pattern", "up-peak")),
+                Double.parseDouble(options.getOrDefault("rate", "0.5")),
+                durationNanos,
+                floorsQuantity,
+                Long.parseLong(options.getOrDefault("seed", "42")));
+    }
+
+    static DispatchStrategy dispatchStrategy(String name) {
+        return "lowest-wait".equals(name)
+                ? new CostBasedDispatchStrategy(LiftMetrics.NONE)
+                : new RuleBasedDispatchStrategy(LiftMetrics.NONE);
+    }
+
+    static ParkingType parkingType(String name) {
+        return ParkingType.valueOf(name.trim().toUpperCase());
+    }
+
+    private static <T> List<T> values(Map<String, String> options, String name, String defaultValue, Function<String, T> parser) {
+        return Arrays.stream(options.getOrDefault(name, defaultValue).split(","))
+                .map(String::trim)
+                .map(parser)
+                .collect(Collectors.toList());
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            final int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new RuntimeException(String.format("invalid option %s, expected --name=value", arg));
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    /**
+     * Accepts an amount followed by ms, s, m or h.
+     */
+    static Duration parseDuration(String value) {
+        final String text = value.trim().toLowerCase();
+        if (text.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+        }
+        final long amount = Long.parseLong(text.substring(0, text.length() - 1));
+        switch (text.charAt(text.length() - 1)) {
+            case 's':
+                return Duration.ofSeconds(amount);
+            case 'm':
+                return Duration.ofMinutes(amount);
+            case 'h':
+                return Duration.ofHours(amount);
+            default:
+                throw new RuntimeException(String.format("invalid duration %s", value));
+        }
+    }
+}
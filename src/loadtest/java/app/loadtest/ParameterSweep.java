@@ -0,0 +1,130 @@
+package app.loadtest;
+
+import app.service.impl.VirtualLiftClock;
+import lombok.AllArgsConstructor;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs every combination of the swept parameters as independent in-process simulations on
+ * virtual clocks, as many at once as the pool allows, and prints one line per combination.
+ * Every run is seeded, so a combination gives the same figures whatever runs next to it;
+ * with several repeats the seeds follow each other and their results are added up.
+ */
+final class ParameterSweep {
+
+    @AllArgsConstructor
+    private static final class Scenario {
+
+        private final int liftsQuantity;
+
+        private final int floorsQuantity;
+
+        private final String strategy;
+
+        private final String parking;
+
+        private final String pattern;
+
+        private final String travelTime;
+
+        private final double callsPerSecond;
+    }
+
+    private final List<Scenario> scenarios = new ArrayList<>();
+
+    private final int repeats;
+
+    private final long seed;
+
+    private final long durationNanos;
+
+    private final long drainNanos;
+
+    ParameterSweep(List<Integer> liftsQuantities, List<Integer> floorsQuantities, List<String> strategies,
+                   List<String> parkings, List<String> patterns, List<String> travelTimes, List<Double> rates,
+                   int repeats, long seed, long durationNanos, long drainNanos) {
+        for (int liftsQuantity : liftsQuantities) {
+            for (int floorsQuantity : floorsQuantities) {
+                for (String strategy : strategies) {
+                    for (String parking : parkings) {
+                        for (String pattern : patterns) {
+                            for (String travelTime : travelTimes) {
+                                for (double rate : rates) {
+                                    scenarios.add(new Scenario(liftsQuantity, floorsQuantity, strategy, parking, pattern, travelTime, rate));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        if (repeats < 1) {
+            throw new RuntimeException(String.format("invalid repeats %s", repeats));
+        }
+        this.repeats = repeats;
+        this.seed = seed;
+        this.durationNanos = durationNanos;
+        this.drainNanos = drainNanos;
+    }
+
+    void run(int parallelism, PrintStream out) throws InterruptedException, ExecutionException {
+        out.printf("Sweeping %d scenarios, %d run(s) each, %d at a time%n", scenarios.size(), repeats, parallelism);
+        out.printf("%5s %6s %-11s %-7s %-10s %6s %6s %8s %9s %8s %12s %11s %10s %10s%n", "lifts", "floors", "strategy", "parking", "pattern",
+                "travel", "rate", "calls", "wait mean", "wait p95", "journey mean", "floors/call", "peak/5min", "unfinished");
+
+        // runs block until their simulation is over, so each takes a thread of its own
+        final ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            final long started = System.nanoTime();
+            final List<Future<LoadTestReport>> runs = new ArrayList<>();
+            for (Scenario scenario : scenarios) {
+                for (int repeat = 0; repeat < repeats; repeat++) {
+                    final long runSeed = seed + repeat;
+                    runs.add(pool.submit(() -> run(scenario, runSeed)));
+                }
+            }
+            long runsWallNanos = 0;
+            for (int i = 0; i < scenarios.size(); i++) {
+                final LoadTestReport total = new LoadTestReport();
+                for (int repeat = 0; repeat < repeats; repeat++) {
+                    total.add(runs.get(i * repeats + repeat).get());
+                }
+                runsWallNanos += total.getWallNanos();
+                print(out, scenarios.get(i), total);
+            }
+            final long elapsedNanos = System.nanoTime() - started;
+            out.printf("Ran %d simulations in %.1f s of wall time, %.1f s of them added up (%.1fx)%n", runs.size(),
+                    elapsedNanos / 1e9, runsWallNanos / 1e9, runsWallNanos / (double) Math.max(1, elapsedNanos));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * The simulation itself runs on its engine's scheduler thread, the pool's worker waits for it.
+     */
+    private LoadTestReport run(Scenario scenario, long runSeed) throws InterruptedException {
+        final SyntheticTraffic calls = new SyntheticTraffic(TrafficPattern.of(scenario.pattern), scenario.callsPerSecond,
+                durationNanos, scenario.floorsQuantity, runSeed);
+        return new InProcessLoadTest(scenario.liftsQuantity, scenario.floorsQuantity,
+                LoadTestRunner.parseDuration(scenario.travelTime), new VirtualLiftClock(),
+                LoadTestRunner.dispatchStrategy(scenario.strategy), LoadTestRunner.parkingType(scenario.parking), runSeed)
+                .run(calls, durationNanos, drainNanos);
+    }
+
+    private static void print(PrintStream out, Scenario scenario, LoadTestReport report) {
+        out.printf("%5d %6d %-11s %-7s %-10s %6s %6.2f %8d %9.2f %8.2f %12.2f %11.2f %10d %10d%n",
+                scenario.liftsQuantity, scenario.floorsQuantity, scenario.strategy, scenario.parking, scenario.pattern,
+                scenario.travelTime, scenario.callsPerSecond, report.getDispatched(),
+                report.getMeanWaitSeconds(), report.getWaitSeconds(95), report.getMeanJourneySeconds(),
+                report.getFloorsTravelled() / (double) Math.max(1, report.getDispatched()), report.getPeakHandlingCapacity(),
+                report.getUnfinished());
+    }
+}
@@ -0,0 +1,25 @@
+package app.loadtest;
+
+import app.domain.enums.Direction;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@AllArgsConstructor
+@Getter
+@ToString
+final class PassengerCall {
+
+    /**
+     * Simulation time since the start of the scenario.
+     */
+    private final long atNanos;
+
+    private final int floor;
+
+    private final int destination;
+
+    Direction getDirection() {
+        return (destination > floor) ? Direction.UP : Direction.DOWN;
+    }
+}
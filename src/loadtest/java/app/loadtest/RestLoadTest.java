@@ -0,0 +1,81 @@
+package app.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posts calls to a running application at their trace times compressed by {@code speedUp}.
+ * Passengers can't be followed over REST, so only the time to get a call assigned is measured;
+ * the server's own enqueue-to-assignment latency is printed from its queue statistics.
+ */
+final class RestLoadTest {
+
+    private final URI baseUri;
+
+    private final double speedUp;
+
+    private final int maxInFlight;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    private final LoadTestReport report = new LoadTestReport();
+
+    /**
+     * @param maxInFlight calls awaiting a response at most, each on a connection of its own
+     */
+    RestLoadTest(URI baseUri, double speedUp, int maxInFlight) {
+        this.baseUri = baseUri;
+        this.speedUp = speedUp;
+        this.maxInFlight = maxInFlight;
+    }
+
+    LoadTestReport run(Iterator<PassengerCall> calls, long durationNanos) throws InterruptedException {
+        final Semaphore inFlight = new Semaphore(maxInFlight);
+        final URI requestsUri = baseUri.resolve("/lift-requests");
+        final long wallStart = System.nanoTime();
+        while (calls.hasNext()) {
+            final PassengerCall call = calls.next();
+            if (call.getAtNanos() >= durationNanos) {
+                break;
+            }
+            final long delay = wallStart + (long) (call.getAtNanos() / speedUp) - System.nanoTime();
+            if (delay > 0) {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+            inFlight.acquire();
+            final long sent = System.nanoTime();
+            client.sendAsync(HttpRequest.newBuilder(requestsUri)
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(String.format("{\"floorNumber\":%d,\"direction\":\"%s\"}",
+                                    call.getFloor(), call.getDirection())))
+                            .build(),
+                    HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error != null || response.statusCode() / 100 != 2 && response.statusCode() != 503) {
+                            report.recordFailure();
+                        } else if (response.statusCode() == 503) {
+                            report.recordRejected();
+                        } else {
+                            report.recordDispatch(System.nanoTime() - sent);
+                        }
+                        inFlight.release();
+                    });
+        }
+        inFlight.acquire(maxInFlight);
+        final long wallNanos = System.nanoTime() - wallStart;
+        report.finish((long) (wallNanos * speedUp), (long) (wallNanos * speedUp), wallNanos, 0, 0);
+        return report;
+    }
+
+    String fetchQueueStats() throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(baseUri.resolve("/lift-requests/queue")).GET().build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+    }
+}
@@ -0,0 +1,55 @@
+package app.loadtest;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Poisson arrivals of {@code callsPerSecond} on average, seeded so a scenario can be repeated.
+ */
+final class SyntheticTraffic implements Iterator<PassengerCall> {
+
+    private final TrafficPattern pattern;
+
+    private final double callsPerSecond;
+
+    private final long durationNanos;
+
+    private final int floorsQuantity;
+
+    private final Random random;
+
+    private long nextAtNanos;
+
+    SyntheticTraffic(TrafficPattern pattern, double callsPerSecond, long durationNanos, int floorsQuantity, long seed) {
+        if (callsPerSecond <= 0 || floorsQuantity < 2) {
+            throw new RuntimeException(String.format("invalid traffic: %s calls/s over %s floors", callsPerSecond, floorsQuantity));
+        }
+        this.pattern = pattern;
+        this.callsPerSecond = callsPerSecond;
+        this.durationNanos = durationNanos;
+        this.floorsQuantity = floorsQuantity;
+        this.random = new Random(seed);
+        this.nextAtNanos = interArrivalNanos();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextAtNanos < durationNanos;
+    }
+
+    @Override
+    public PassengerCall next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final PassengerCall call = pattern.next(nextAtNanos, floorsQuantity, random);
+        nextAtNanos += interArrivalNanos();
+        return call;
+    }
+
+    private long interArrivalNanos() {
+        return (long) (-Math.log(1 - random.nextDouble()) / callsPerSecond * TimeUnit.SECONDS.toNanos(1));
+    }
+}
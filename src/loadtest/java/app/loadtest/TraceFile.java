@@ -0,0 +1,94 @@
+package app.loadtest;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recorded passenger calls: an 8-byte header followed by 8-byte records holding the milliseconds
+ * since the previous call, the origin floor and the destination floor.
+ */
+final class TraceFile {
+
+    private static final int MAGIC = 0x4C494654;
+
+    private static final int VERSION = 1;
+
+    private TraceFile() {
+    }
+
+    static long write(Path path, Iterator<PassengerCall> calls) throws IOException {
+        long written = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            long previousMillis = 0;
+            while (calls.hasNext()) {
+                final PassengerCall call = calls.next();
+                final long atMillis = TimeUnit.NANOSECONDS.toMillis(call.getAtNanos());
+                out.writeInt((int) (atMillis - previousMillis));
+                out.writeShort(call.getFloor());
+                out.writeShort(call.getDestination());
+                previousMillis = atMillis;
+                written++;
+            }
+        }
+        return written;
+    }
+
+    static Reader read(Path path) throws IOException {
+        return new Reader(new DataInputStream(new BufferedInputStream(Files.newInputStream(path))));
+    }
+
+    static final class Reader implements Iterator<PassengerCall>, Closeable {
+
+        private final DataInputStream in;
+
+        private long atMillis;
+
+        private PassengerCall next;
+
+        private Reader(DataInputStream in) throws IOException {
+            this.in = in;
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                in.close();
+                throw new RuntimeException("Not a lift trace file");
+            }
+            next = readNext();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public PassengerCall next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final PassengerCall call = next;
+            next = readNext();
+            return call;
+        }
+
+        private PassengerCall readNext() {
+            try {
+                atMillis += in.readInt();
+                return new PassengerCall(TimeUnit.MILLISECONDS.toNanos(atMillis), in.readUnsignedShort(), in.readUnsignedShort());
+            } catch (EOFException e) {
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
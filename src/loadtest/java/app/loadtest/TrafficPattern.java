@@ -0,0 +1,40 @@
+package app.loadtest;
+
+import java.util.Random;
+
+/**
+ * Origin/destination mix of a building's typical peaks; floor 0 is the lobby and whatever
+ * isn't travelling from or to it moves between two random floors.
+ */
+enum TrafficPattern {
+    UP_PEAK(0.85, 0.05),
+    TWO_WAY(0.4, 0.4),
+    DOWN_PEAK(0.05, 0.85),
+    INTERFLOOR(0, 0);
+
+    private final double fromLobby;
+
+    private final double toLobby;
+
+    TrafficPattern(double fromLobby, double toLobby) {
+        this.fromLobby = fromLobby;
+        this.toLobby = toLobby;
+    }
+
+    static TrafficPattern of(String name) {
+        return valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+
+    PassengerCall next(long atNanos, int floorsQuantity, Random random) {
+        final double draw = random.nextDouble();
+        if (draw < fromLobby) {
+            return new PassengerCall(atNanos, 0, 1 + random.nextInt(floorsQuantity - 1));
+        }
+        if (draw < fromLobby + toLobby) {
+            return new PassengerCall(atNanos, 1 + random.nextInt(floorsQuantity - 1), 0);
+        }
+        final int floor = random.nextInt(floorsQuantity);
+        final int destination = random.nextInt(floorsQuantity - 1);
+        return new PassengerCall(atNanos, floor, (destination >= floor) ? destination + 1 : destination);
+    }
+}
@@ -0,0 +1,12 @@
+package app.config;
+
+import lombok.Data;
+
+@Data
+public class BuildingConfiguration {
+
+    private int liftsQuantity;
+
+    private int floorsQuantity;
+
+}
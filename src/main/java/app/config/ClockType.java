@@ -0,0 +1,7 @@
+package app.config;
+
+public enum ClockType {
+    REAL_TIME,
+    SCALED,
+    VIRTUAL
+}
@@ -1,22 +1,152 @@
 package app.config;
 
-import app.service.LiftEngineService;
-import app.service.LiftRequestsDispatchingService;
+import app.service.DispatchStrategy;
+import app.service.LiftClock;
+import app.service.LiftMetrics;
+import app.service.LiftRequestsQueueService;
+import app.service.ParkingStrategy;
+import app.service.impl.AbstractLiftEngineService;
+import app.service.impl.BinaryHallCallServer;
+import app.service.impl.BuildingShard;
+import app.service.impl.BuildingShards;
+import app.service.impl.CostBasedDispatchStrategy;
 import app.service.impl.DefaultLiftEngineService;
 import app.service.impl.DefaultLiftRequestsDispatchingService;
+import app.service.impl.DefaultLiftRequestsQueueService;
+import app.service.impl.DemandParkingStrategy;
+import app.service.impl.EventDrivenLiftEngineService;
+import app.service.impl.GroundFloorParkingStrategy;
+import app.service.impl.HallCallDemand;
+import app.service.impl.LiftStatePersistence;
+import app.service.impl.LiftStateStream;
+import app.service.impl.MappedEventJournal;
+import app.service.impl.MicrometerLiftMetrics;
+import app.service.impl.RemoteLiftRequestsQueueService;
+import app.service.impl.RuleBasedDispatchStrategy;
+import app.service.impl.ScaledLiftClock;
+import app.service.impl.ShardedLiftRequestsQueueService;
+import app.service.impl.VirtualLiftClock;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.Closeable;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.*;
 
 @Configuration
 public class DefaultConfiguration {
 
     @Bean
-    public LiftEngineService getLiftEngineService(LiftsConfiguration liftsConfiguration) {
-        return new DefaultLiftEngineService(liftsConfiguration);
+    public BuildingShards getBuildingShards(LiftsConfiguration liftsConfiguration, MeterRegistry meterRegistry, ObjectMapper objectMapper,
+                                            @Value("${lifts-quantity}") int liftsQuantity,
+                                            @Value("${floors-quantity}") int floorsQuantity) {
+        final Map<String, BuildingConfiguration> buildings = new LinkedHashMap<>(liftsConfiguration.getBuildings());
+        if (buildings.isEmpty() && liftsConfiguration.getRemoteBuildings().isEmpty()) {
+            final BuildingConfiguration building = new BuildingConfiguration();
+            building.setLiftsQuantity(liftsQuantity);
+            building.setFloorsQuantity(floorsQuantity);
+            buildings.put(LiftsConfiguration.DEFAULT_BUILDING, building);
+        }
+        final List<BuildingShard> localBuildings = new ArrayList<>();
+        buildings.forEach((buildingId, building) ->
+                localBuildings.add(getBuildingShard(buildingId, building, liftsConfiguration, meterRegistry, objectMapper)));
+        return new BuildingShards(localBuildings);
+    }
+
+    @Bean
+    public BinaryHallCallServer getBinaryHallCallServer(LiftsConfiguration liftsConfiguration, BuildingShards buildingShards) {
+        return new BinaryHallCallServer(buildingShards.getAll(), liftsConfiguration.getRemoteBuildings().size(),
+                liftsConfiguration.getBinaryTcpPort(), liftsConfiguration.getBinaryUdpPort());
     }
 
     @Bean
-    public LiftRequestsDispatchingService getLiftRequestsDispatchingService(LiftEngineService liftEngineService) {
-        return new DefaultLiftRequestsDispatchingService(liftEngineService);
+    public LiftRequestsQueueService getLiftRequestsQueueService(LiftsConfiguration liftsConfiguration, BuildingShards buildingShards) {
+        final Map<String, LiftRequestsQueueService> remoteBuildings = new HashMap<>();
+        if (!liftsConfiguration.getRemoteBuildings().isEmpty()) {
+            final RestTemplate restTemplate = new RestTemplateBuilder()
+                    .setConnectTimeout(Duration.ofSeconds(1))
+                    .setReadTimeout(Duration.ofSeconds(5))
+                    .build();
+            final Map<String, LiftRequestsQueueService> nodes = new HashMap<>();
+            liftsConfiguration.getRemoteBuildings().forEach((buildingId, url) -> remoteBuildings.put(buildingId,
+                    nodes.computeIfAbsent(url, node -> new RemoteLiftRequestsQueueService(restTemplate, node))));
+        }
+        return new ShardedLiftRequestsQueueService(buildingShards, remoteBuildings);
+    }
+
+    private BuildingShard getBuildingShard(String buildingId, BuildingConfiguration building,
+                                           LiftsConfiguration liftsConfiguration, MeterRegistry meterRegistry,
+                                           ObjectMapper objectMapper) {
+        final LiftClock liftClock = getLiftClock(liftsConfiguration);
+        final AbstractLiftEngineService liftEngineService = (liftsConfiguration.getEngine() == EngineType.EVENT_DRIVEN)
+                ? new EventDrivenLiftEngineService(liftsConfiguration, liftClock)
+                : new DefaultLiftEngineService(liftsConfiguration, liftClock);
+        liftEngineService.setBuildingId(buildingId);
+        liftEngineService.setLiftsQuantity(building.getLiftsQuantity());
+        liftEngineService.setFloorsQuantity(building.getFloorsQuantity());
+
+        final MicrometerLiftMetrics liftMetrics = new MicrometerLiftMetrics(meterRegistry, liftClock, buildingId);
+        liftMetrics.setLazyLiftMeters(liftsConfiguration.isLazyStart());
+        liftEngineService.setLiftMetrics(liftMetrics);
+
+        final List<Closeable> resources = new ArrayList<>();
+        if (liftsConfiguration.isJournalEnabled()) {
+            final MappedEventJournal eventJournal = new MappedEventJournal(Paths.get(liftsConfiguration.getJournalDirectory(), buildingId));
+            liftEngineService.addLiftEventListener(eventJournal);
+            resources.add(eventJournal);
+        }
+        if (liftsConfiguration.isPersistenceEnabled()) {
+            final LiftStatePersistence liftStatePersistence = new LiftStatePersistence(
+                    Paths.get(liftsConfiguration.getPersistenceDirectory(), buildingId), liftsConfiguration.getSnapshotInterval());
+            liftEngineService.setLiftStatePersistence(liftStatePersistence);
+            resources.add(liftStatePersistence);
+        }
+        final DefaultLiftRequestsDispatchingService liftRequestsDispatchingService = new DefaultLiftRequestsDispatchingService(
+                liftEngineService, getDispatchStrategy(liftsConfiguration, liftMetrics), liftMetrics);
+        liftEngineService.setParkingStrategy(getParkingStrategy(liftsConfiguration, building, liftClock, liftRequestsDispatchingService));
+        final DefaultLiftRequestsQueueService liftRequestsQueueService = new DefaultLiftRequestsQueueService(
+                liftRequestsDispatchingService, building.getFloorsQuantity(), liftsConfiguration);
+        final LiftStateStream liftStateStream = new LiftStateStream(buildingId, liftEngineService, objectMapper,
+                liftsConfiguration.getFeedInterval(), liftsConfiguration.getFeedWriterThreads());
+        return new BuildingShard(buildingId, liftEngineService, liftRequestsDispatchingService, liftRequestsQueueService, liftStateStream, resources);
+    }
+
+    private DispatchStrategy getDispatchStrategy(LiftsConfiguration liftsConfiguration, LiftMetrics liftMetrics) {
+        return (liftsConfiguration.getDispatchStrategy() == DispatchStrategyType.LOWEST_WAIT)
+                ? new CostBasedDispatchStrategy(liftMetrics)
+                : new RuleBasedDispatchStrategy(liftMetrics);
+    }
+
+    private ParkingStrategy getParkingStrategy(LiftsConfiguration liftsConfiguration, BuildingConfiguration building,
+                                               LiftClock liftClock, DefaultLiftRequestsDispatchingService liftRequestsDispatchingService) {
+        if (liftsConfiguration.getParking() != ParkingType.DEMAND) {
+            return new GroundFloorParkingStrategy();
+        }
+        final long startTimeOfDayNanos = liftClock.isVirtual() ? 0 : LocalTime.now().toNanoOfDay();
+        final HallCallDemand hallCallDemand = new HallCallDemand(liftClock, startTimeOfDayNanos,
+                liftsConfiguration.getParkingDemandBucket(), building.getFloorsQuantity());
+        liftRequestsDispatchingService.setHallCallDemand(hallCallDemand);
+        return new DemandParkingStrategy(hallCallDemand);
+    }
+
+    /**
+     * Every building gets its own clock: a virtual clock jumps to the next event of one timeline.
+     */
+    private LiftClock getLiftClock(LiftsConfiguration liftsConfiguration) {
+        switch (liftsConfiguration.getClock()) {
+            case VIRTUAL:
+                return new VirtualLiftClock();
+            case SCALED:
+                return new ScaledLiftClock(liftsConfiguration.getClockSpeedUp());
+            default:
+                return new ScaledLiftClock(1);
+        }
     }
 }
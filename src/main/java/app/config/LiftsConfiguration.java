@@ -4,11 +4,111 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 @ConfigurationProperties(prefix = "lift")
 @Data
 public class LiftsConfiguration {
 
+    /**
+     * Building of requests without a building id when no buildings are configured.
+     */
+    public static final String DEFAULT_BUILDING = "default";
+
     private int secondsPerFloor;
 
-}
\ No newline at end of file
+    /**
+     * Overrides secondsPerFloor when set, e.g. 1500ms or 250us.
+     */
+    private Duration travelTimePerFloor;
+
+    private ClockType clock = ClockType.REAL_TIME;
+
+    private double clockSpeedUp = 1;
+
+    private EngineType engine = EngineType.THREADED;
+
+    private int schedulerThreads = 1;
+
+    private boolean virtualThreads;
+
+    /**
+     * Leaves idle lifts without a thread or scheduled event until their first stop, so a large fleet starts quickly.
+     */
+    private boolean lazyStart;
+
+    /**
+     * Presses random buttons inside a lift whenever it reaches a requested floor, as if someone got in;
+     * callers that move their own passengers around turn it off so lifts can actually go idle.
+     */
+    private boolean simulatedPassengers = true;
+
+    /**
+     * Seeds the simulated lift tonnage and in-car button presses so runs can be repeated; unseeded when null.
+     */
+    private Long randomSeed;
+
+    private int dispatchQueueCapacity = 10_000;
+
+    private int dispatchBatchSize = 256;
+
+    private DispatchStrategyType dispatchStrategy = DispatchStrategyType.RULES;
+
+    /**
+     * Share of a car's passenger capacity from which hall calls bypass it while other lifts aren't as full; above 1 never.
+     */
+    private double loadBypass = 1.0;
+
+    private ParkingType parking = ParkingType.GROUND;
+
+    /**
+     * Time-of-day slot of the hall call demand histogram used by demand parking.
+     */
+    private Duration parkingDemandBucket = Duration.ofMinutes(15);
+
+    /**
+     * Ports of the binary hall call listener, see {@link app.service.impl.BinaryHallCallServer}; 0 leaves it off.
+     */
+    private int binaryTcpPort;
+
+    private int binaryUdpPort;
+
+    private boolean journalEnabled;
+
+    private String journalDirectory = "journal";
+
+    private boolean persistenceEnabled;
+
+    private String persistenceDirectory = "state";
+
+    private Duration snapshotInterval = Duration.ofMinutes(1);
+
+    /**
+     * Lift state changes kept for subscribers to resume from, rounded up to a power of two.
+     */
+    private int feedCapacity = 65_536;
+
+    private Duration feedInterval = Duration.ofMillis(100);
+
+    private int feedWriterThreads = 4;
+
+    /**
+     * Buildings run by this node, each as an independent shard; a single default building of
+     * lifts-quantity lifts and floors-quantity floors when neither this nor remoteBuildings is set.
+     */
+    private Map<String, BuildingConfiguration> buildings = new LinkedHashMap<>();
+
+    /**
+     * Base urls of the nodes running the other buildings, requests for them are forwarded.
+     */
+    private Map<String, String> remoteBuildings = new LinkedHashMap<>();
+
+    public long getTravelNanosPerFloor() {
+        return (travelTimePerFloor != null) ? travelTimePerFloor.toNanos() : TimeUnit.SECONDS.toNanos(secondsPerFloor);
+    }
+
+}
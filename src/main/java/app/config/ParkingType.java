@@ -0,0 +1,6 @@
+package app.config;
+
+public enum ParkingType {
+    GROUND,
+    DEMAND
+}
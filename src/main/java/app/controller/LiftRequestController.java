@@ -1,23 +1,78 @@
 package app.controller;
 
+import app.domain.DispatchQueueStats;
 import app.domain.ElevateRequest;
-import app.service.LiftRequestsDispatchingService;
+import app.service.LiftRequestsQueueService;
 import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/lift-requests")
 @AllArgsConstructor
 public class LiftRequestController {
 
-    private final LiftRequestsDispatchingService liftRequestsDispatchingService;
+    private final LiftRequestsQueueService liftRequestsQueueService;
 
+    /**
+     * Answers with the assigned lift and its ETA once dispatched; the request thread is released meanwhile.
+     */
     @PostMapping
-    public ResponseEntity<String> enqueue(@RequestBody ElevateRequest request) {
-        liftRequestsDispatchingService.dispatchLiftRequest(request);
-        return new ResponseEntity<>(HttpStatus.CREATED);
+    public CompletableFuture<ResponseEntity<?>> enqueue(@RequestBody ElevateRequest request) {
+        return liftRequestsQueueService.submit(request).handle((assignment, error) -> {
+            if (error == null) {
+                return (assignment != null) ? ResponseEntity.ok(assignment) : new ResponseEntity<>(HttpStatus.ACCEPTED);
+            }
+            final Throwable cause = (error instanceof CompletionException) ? error.getCause() : error;
+            if (cause instanceof RejectedExecutionException) {
+                return queueIsFull();
+            }
+            if (cause instanceof IllegalArgumentException) {
+                return invalidRequest((IllegalArgumentException) cause);
+            }
+            throw (cause instanceof RuntimeException) ? (RuntimeException) cause : new CompletionException(cause);
+        });
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<String> enqueueBatch(@RequestBody List<ElevateRequest> requests) {
+        return (liftRequestsQueueService.enqueueAll(requests) == requests.size())
+                ? new ResponseEntity<>(HttpStatus.ACCEPTED)
+                : queueIsFull();
+    }
+
+    /**
+     * Answers 204 when every request of the batch would be taken, 400 otherwise; nothing is queued.
+     */
+    @PostMapping("/batch/validation")
+    public ResponseEntity<Void> validateBatch(@RequestBody List<ElevateRequest> requests) {
+        liftRequestsQueueService.validateAll(requests);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @GetMapping("/queue")
+    public DispatchQueueStats queueStats() {
+        return liftRequestsQueueService.getStats();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> invalidRequest(IllegalArgumentException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    private ResponseEntity<String> queueIsFull() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return new ResponseEntity<>("Lift requests queue is full", headers, HttpStatus.SERVICE_UNAVAILABLE);
     }
 
 }
@@ -0,0 +1,85 @@
+package app.controller;
+
+import app.domain.LiftsSnapshot;
+import app.service.LiftStateSubscriber;
+import app.service.LiftStatesService;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/lifts")
+@AllArgsConstructor
+public class LiftStateController {
+
+    private final LiftStatesService liftStatesService;
+
+    @GetMapping
+    public LiftsSnapshot lifts(@RequestParam(value = "building", required = false) String buildingId) {
+        return liftStatesService.getLifts(buildingId);
+    }
+
+    /**
+     * Server-sent events: a {@code snapshot} event, then one event per batch of changes, each data
+     * line reading {@code <lift> <f|d|s|l|p|+|-> <value>} for floor, direction, state, lights,
+     * passengers on board and a stop added or served. Event ids are sequence numbers to resume from,
+     * via {@code from} or the Last-Event-ID header browsers send on reconnect.
+     */
+    @GetMapping("/feed")
+    public ResponseEntity<ResponseBodyEmitter> feed(@RequestParam(value = "building", required = false) String buildingId,
+                                                    @RequestParam(value = "from", required = false) Long from,
+                                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        final long fromSequence = (from != null) ? from : (lastEventId != null) ? lastEventId : -1;
+        final ResponseBodyEmitter emitter = new ResponseBodyEmitter(0L);
+        final LiftStateSubscriber subscriber = new LiftStateSubscriber() {
+            @Override
+            public void send(byte[] frame) throws IOException {
+                emitter.send(frame, MediaType.TEXT_EVENT_STREAM);
+            }
+
+            @Override
+            public void complete() {
+                emitter.complete();
+            }
+        };
+        liftStatesService.subscribe(buildingId, fromSequence, subscriber);
+        emitter.onCompletion(() -> liftStatesService.unsubscribe(buildingId, subscriber));
+        emitter.onTimeout(() -> liftStatesService.unsubscribe(buildingId, subscriber));
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .header("Cache-Control", "no-cache")
+                .body(emitter);
+    }
+
+    /**
+     * Long-poll for the lift an assignment named: 200 once it has stopped at the floor, 202 if it is
+     * still on its way after {@code timeout} seconds and should be polled again.
+     */
+    @GetMapping("/{liftId}/stops/{floor}")
+    public DeferredResult<ResponseEntity<Void>> stopServed(@PathVariable("liftId") String liftId, @PathVariable("floor") int floor,
+                                                           @RequestParam(value = "building", required = false) String buildingId,
+                                                           @RequestParam(value = "timeout", defaultValue = "30") long timeout) {
+        final DeferredResult<ResponseEntity<Void>> result = new DeferredResult<>(TimeUnit.SECONDS.toMillis(timeout),
+                new ResponseEntity<Void>(HttpStatus.ACCEPTED));
+        final CompletableFuture<Void> served = liftStatesService.whenStopServed(buildingId, liftId, floor);
+        served.thenRun(() -> result.setResult(ResponseEntity.ok().build()));
+        result.onTimeout(() -> served.cancel(false));
+        return result;
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> invalidRequest(IllegalArgumentException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+}
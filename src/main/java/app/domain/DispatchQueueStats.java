@@ -0,0 +1,32 @@
+package app.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DispatchQueueStats {
+
+    private int queueDepth;
+
+    private int remainingCapacity;
+
+    private long acceptedCount;
+
+    private long rejectedCount;
+
+    private long dispatchedCount;
+
+    private long failedCount;
+
+    private double drainRatePerSecond;
+
+    private long averageLatencyMicros;
+
+    private long maxLatencyMicros;
+
+}
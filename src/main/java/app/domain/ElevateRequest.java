@@ -8,6 +8,11 @@ import lombok.Data;
 @Builder
 public class ElevateRequest {
 
+    /**
+     * May be omitted while there is a single building.
+     */
+    private String buildingId;
+
     private int floorNumber;
 
     private Direction direction;
@@ -0,0 +1,73 @@
+package app.domain;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lifts at each floor, and idle lifts by the floor they park at, kept up to date as lifts move
+ * so parking decisions never scan every lift. A lift's own entries are changed under its lock;
+ * readers see the counts without one.
+ */
+public final class FloorOccupancy {
+
+    public static final int NOT_IDLE = -1;
+
+    private final AtomicIntegerArray liftsAt;
+
+    private final AtomicIntegerArray idleLiftsAt;
+
+    private final int[] parkingFloor;
+
+    public FloorOccupancy(int liftsQuantity, int floorsQuantity) {
+        liftsAt = new AtomicIntegerArray(floorsQuantity);
+        idleLiftsAt = new AtomicIntegerArray(floorsQuantity);
+        parkingFloor = new int[liftsQuantity];
+        Arrays.fill(parkingFloor, NOT_IDLE);
+    }
+
+    public int getFloorsQuantity() {
+        return liftsAt.length();
+    }
+
+    public void add(int floor) {
+        liftsAt.incrementAndGet(floor);
+    }
+
+    public void move(int oldFloor, int newFloor) {
+        if (oldFloor != newFloor) {
+            liftsAt.incrementAndGet(newFloor);
+            liftsAt.decrementAndGet(oldFloor);
+        }
+    }
+
+    public boolean anyLiftAt(int floor) {
+        return liftsAt.get(floor) > 0;
+    }
+
+    /**
+     * Idle lifts parked at {@code floor} or on their way there.
+     */
+    public int idleLiftsAt(int floor) {
+        return idleLiftsAt.get(floor);
+    }
+
+    /**
+     * @return where the idle lift parks or {@link #NOT_IDLE}
+     */
+    public int getParkingFloor(int lift) {
+        return parkingFloor[lift];
+    }
+
+    public void setIdle(int lift, int floor) {
+        clearIdle(lift);
+        parkingFloor[lift] = floor;
+        idleLiftsAt.incrementAndGet(floor);
+    }
+
+    public void clearIdle(int lift) {
+        if (parkingFloor[lift] != NOT_IDLE) {
+            idleLiftsAt.decrementAndGet(parkingFloor[lift]);
+            parkingFloor[lift] = NOT_IDLE;
+        }
+    }
+}
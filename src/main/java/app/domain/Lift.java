@@ -11,9 +11,16 @@ import lombok.ToString;
 @Getter
 public final class Lift {
 
+    /**
+     * Weight of a passenger for the capacity of a car of a given tonnage.
+     */
+    public static final int PASSENGER_KG = 75;
+
+    private final String buildingId;
+
     private final String id;
 
-    private final int secondsPerFloor;
+    private final long travelNanosPerFloor;
 
     private final int tonnage;
 
@@ -27,63 +34,21 @@ public final class Lift {
 
     private final LiftButtons buttons;
 
-    public static Lift copyOf(Lift that) {
-        return copyWithButtons(that, that.getButtons());
-    }
-
-    public static Lift copyWithButtons(Lift that, LiftButtons buttons) {
-        return Lift.builder()
-                .id(that.getId())
-                .secondsPerFloor(that.getSecondsPerFloor())
-                .tonnage(that.getTonnage())
-                .currentFloor(that.getCurrentFloor())
-                .lightOn(that.isLightOn())
-                .state(that.getState())
-                .direction(that.getDirection())
-                .buttons(buttons)
-                .build();
-    }
-
-    public static Lift copyWithDirection(Lift that, Direction direction) {
-        return Lift.builder()
-                .id(that.getId())
-                .secondsPerFloor(that.getSecondsPerFloor())
-                .tonnage(that.getTonnage())
-                .currentFloor(that.getCurrentFloor())
-                .lightOn(that.isLightOn())
-                .state(that.getState())
-                .direction(direction)
-                .buttons(that.getButtons())
-                .build();
-    }
+    /**
+     * Passengers on board.
+     */
+    private final int load;
 
-    public static Lift copyWithState(Lift that, LiftState state) {
-        return copyWithStateAndLights(that, state, that.isLightOn());
-    }
+    /**
+     * Loaded past lift.load-bypass of its capacity, so hall calls go to other lifts.
+     */
+    private final boolean full;
 
-    public static Lift copyWithStateAndLights(Lift that, LiftState state, boolean lightOn) {
-        return Lift.builder()
-                .id(that.getId())
-                .secondsPerFloor(that.getSecondsPerFloor())
-                .tonnage(that.getTonnage())
-                .currentFloor(that.getCurrentFloor())
-                .lightOn(lightOn)
-                .state(state)
-                .direction(that.getDirection())
-                .buttons(that.getButtons())
-                .build();
+    public int getPassengerCapacity() {
+        return passengerCapacity(tonnage);
     }
 
-    public static Lift copyWithCurrentFloorAndState(Lift that, int currentFloor, LiftState state) {
-        return Lift.builder()
-                .id(that.getId())
-                .secondsPerFloor(that.getSecondsPerFloor())
-                .tonnage(that.getTonnage())
-                .currentFloor(currentFloor)
-                .lightOn(that.isLightOn())
-                .state(state)
-                .direction(that.getDirection())
-                .buttons(that.getButtons())
-                .build();
+    public static int passengerCapacity(int tonnage) {
+        return Math.max(1, tonnage / PASSENGER_KG);
     }
 }
@@ -0,0 +1,23 @@
+package app.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiftAssignment {
+
+    private String buildingId;
+
+    private String liftId;
+
+    private int floorNumber;
+
+    /**
+     * Estimated time for the lift to get to the floor when it was assigned, in lift clock time.
+     */
+    private long etaMillis;
+
+}
@@ -4,73 +4,147 @@ import java.util.*;
 
 public final class LiftButtons {
 
-    private final boolean[] keys;
+    public static final int NO_FLOOR = -1;
+
+    private final int floorQuantity;
+
+    private final long[] words;
+
+    private int pressedCount;
 
     public LiftButtons(int floorQuantity) {
-        this.keys = new boolean[floorQuantity];
+        this.floorQuantity = floorQuantity;
+        this.words = new long[(floorQuantity + Long.SIZE - 1) / Long.SIZE];
     }
 
-    public LiftButtons(boolean[] keys) {
-        this.keys = keys;
+    private LiftButtons(LiftButtons that) {
+        this.floorQuantity = that.floorQuantity;
+        this.words = Arrays.copyOf(that.words, that.words.length);
+        this.pressedCount = that.pressedCount;
     }
 
-    public final Optional<Integer> getNextOnTheWayUp(int currentFloor) {
-        for (int i = currentFloor + 1; i < keys.length; i++) {
-            if (keys[i]) {
-                return Optional.of(i);
+    public static LiftButtons copyOf(LiftButtons that) {
+        return new LiftButtons(that);
+    }
+
+    /**
+     * @return closest pressed floor above {@code currentFloor} or {@link #NO_FLOOR}
+     */
+    public final int getNextOnTheWayUp(int currentFloor) {
+        final int from = currentFloor + 1;
+        if (from >= floorQuantity) {
+            return NO_FLOOR;
+        }
+        int wordIndex = from >>> 6;
+        long word = words[wordIndex] & (-1L << from);
+        while (word == 0) {
+            if (++wordIndex == words.length) {
+                return NO_FLOOR;
             }
+            word = words[wordIndex];
         }
-        return Optional.empty();
+        return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
     }
 
-    public final Optional<Integer> getNextOnTheWayDown(int currentFloor) {
-        for (int i = currentFloor - 1; i >= 0; i--) {
-            if (keys[i]) {
-                return Optional.of(i);
+    /**
+     * @return closest pressed floor below {@code currentFloor} or {@link #NO_FLOOR}
+     */
+    public final int getNextOnTheWayDown(int currentFloor) {
+        final int from = Math.min(currentFloor, floorQuantity) - 1;
+        if (from < 0) {
+            return NO_FLOOR;
+        }
+        int wordIndex = from >>> 6;
+        long word = words[wordIndex] & (-1L >>> (Long.SIZE - 1 - (from & 63)));
+        while (word == 0) {
+            if (--wordIndex < 0) {
+                return NO_FLOOR;
             }
+            word = words[wordIndex];
+        }
+        return (wordIndex << 6) + Long.SIZE - 1 - Long.numberOfLeadingZeros(word);
+    }
+
+    public final void turnOffButtonAtFloor(int floor) {
+        checkFloor(floor);
+        final long mask = 1L << floor;
+        final int wordIndex = floor >>> 6;
+        if ((words[wordIndex] & mask) != 0) {
+            words[wordIndex] &= ~mask;
+            pressedCount--;
         }
-        return Optional.empty();
     }
 
-    public final LiftButtons turnOffButtonAtFloor(int floor) {
-        boolean[] newArray = Arrays.copyOf(keys, keys.length);
-        newArray[floor] = false;
-        return new LiftButtons(newArray);
+    public final void turnOnButtonAtFloor(int floor) {
+        checkFloor(floor);
+        final long mask = 1L << floor;
+        final int wordIndex = floor >>> 6;
+        if ((words[wordIndex] & mask) == 0) {
+            words[wordIndex] |= mask;
+            pressedCount++;
+        }
     }
 
-    public final LiftButtons turnOnButtonAtFloor(int floor) {
-        return turnOnButtonsAtFloor(List.of(floor));
+    public final void turnOnButtonsAtFloor(Collection<Integer> floors) {
+        floors.forEach(this::turnOnButtonAtFloor);
     }
 
-    public final LiftButtons turnOnButtonsAtFloor(Collection<Integer> floors) {
-        boolean[] newArray = Arrays.copyOf(keys, keys.length);
-        floors.forEach(floorToSetOn -> newArray[floorToSetOn] = true);
-        return new LiftButtons(newArray);
+    /**
+     * Turns on the buttons of floors {@code 64 * wordIndex + bit} for every bit set in {@code mask}.
+     */
+    public final void turnOnButtonsInWord(int wordIndex, long mask) {
+        pressedCount += Long.bitCount(mask & ~words[wordIndex]);
+        words[wordIndex] |= mask;
+    }
+
+    public final long getWord(int wordIndex) {
+        return words[wordIndex];
+    }
+
+    public final int getFloorQuantity() {
+        return floorQuantity;
+    }
+
+    public final int getWordsQuantity() {
+        return words.length;
     }
 
     public final boolean isEveryButtonTurnedOff() {
-        for (boolean key : keys) {
-            if (key) {
-                return false;
+        return pressedCount == 0;
+    }
+
+    public final int getPressedCount() {
+        return pressedCount;
+    }
+
+    public final List<Integer> getPressedFloors() {
+        final List<Integer> floors = new ArrayList<>(pressedCount);
+        for (int w = 0; w < words.length; w++) {
+            for (long word = words[w]; word != 0; word &= word - 1) {
+                floors.add((w << 6) + Long.numberOfTrailingZeros(word));
             }
         }
-        return true;
+        return floors;
     }
 
     public final boolean isButtonPressed(int floor) {
-        if (floor >= keys.length || floor < 0) {
+        checkFloor(floor);
+        return (words[floor >>> 6] & (1L << floor)) != 0;
+    }
+
+    private void checkFloor(int floor) {
+        if (floor >= floorQuantity || floor < 0) {
             throw new RuntimeException(String.format("invalid floor %s", floor));
         }
-        return keys[floor];
     }
 
     @Override
     public final String toString() {
         final StringJoiner stringJoiner = new StringJoiner(", ", "[", "]");
 
-        for (int i = 0; i < keys.length; i++) {
-            stringJoiner.add(i + "=" + ((keys[i]) ? "\u2611" :"\u25A1"));
+        for (int i = 0; i < floorQuantity; i++) {
+            stringJoiner.add(i + "=" + ((isButtonPressed(i)) ? "\u2611" :"\u25A1"));
         }
         return stringJoiner.toString();
     }
-}
\ No newline at end of file
+}
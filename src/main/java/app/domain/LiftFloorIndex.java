@@ -0,0 +1,144 @@
+package app.domain;
+
+import app.domain.enums.Direction;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Lifts bucketed by direction and ordered by (floor, tonnage, lift number) so the dispatcher
+ * queries answer in O(log n) without copying the lifts state. Each lift is kept under a single
+ * key that its owner moves as the lift changes floor or direction. Full lifts are kept apart
+ * and only found when no other lift is.
+ */
+public final class LiftFloorIndex {
+
+    private static final int FIELD_BITS = 21;
+
+    private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+
+    private final String[] ids;
+
+    private final Map<Direction, NavigableSet<Long>> liftsByDirection = new EnumMap<>(Direction.class);
+
+    private final NavigableSet<Long> fullLifts = new ConcurrentSkipListSet<>();
+
+    /**
+     * Written by each lift's owner only, as its key.
+     */
+    private final boolean[] full;
+
+    public LiftFloorIndex(String[] ids) {
+        if (ids.length > FIELD_MASK) {
+            throw new RuntimeException(String.format("Too many lifts to index: %s", ids.length));
+        }
+        this.ids = ids;
+        this.full = new boolean[ids.length];
+        for (Direction direction : Direction.values()) {
+            liftsByDirection.put(direction, new ConcurrentSkipListSet<>());
+        }
+    }
+
+    public static LiftFloorIndex of(Collection<Lift> lifts) {
+        final List<Lift> sortedLifts = new ArrayList<>(lifts);
+        final LiftFloorIndex index = new LiftFloorIndex(sortedLifts.stream().map(Lift::getId).toArray(String[]::new));
+        for (int i = 0; i < sortedLifts.size(); i++) {
+            final Lift lift = sortedLifts.get(i);
+            index.add(i, lift.getTonnage(), lift.getCurrentFloor(), lift.getDirection());
+            if (lift.isFull()) {
+                index.setFull(i, lift.getTonnage(), lift.getCurrentFloor(), lift.getDirection(), true);
+            }
+        }
+        return index;
+    }
+
+    public void add(int lift, int tonnage, int floor, Direction direction) {
+        bucketOf(lift, direction).add(key(floor, tonnage, lift));
+    }
+
+    public void move(int lift, int tonnage, int oldFloor, Direction oldDirection, int newFloor, Direction newDirection) {
+        final NavigableSet<Long> oldBucket = bucketOf(lift, oldDirection);
+        final NavigableSet<Long> newBucket = bucketOf(lift, newDirection);
+        if (oldFloor == newFloor && oldBucket == newBucket) {
+            return;
+        }
+        newBucket.add(key(newFloor, tonnage, lift));
+        oldBucket.remove(key(oldFloor, tonnage, lift));
+    }
+
+    public void setFull(int lift, int tonnage, int floor, Direction direction, boolean isFull) {
+        if (full[lift] == isFull) {
+            return;
+        }
+        final long key = key(floor, tonnage, lift);
+        final NavigableSet<Long> old = bucketOf(lift, direction);
+        full[lift] = isFull;
+        bucketOf(lift, direction).add(key);
+        old.remove(key);
+    }
+
+    private NavigableSet<Long> bucketOf(int lift, Direction direction) {
+        return full[lift] ? fullLifts : liftsByDirection.get(direction);
+    }
+
+    public Optional<String> findClosest(int floor, Direction direction) {
+        return Optional.ofNullable(closest(liftsByDirection.get(direction), floor)).map(this::idOf);
+    }
+
+    public Optional<String> findClosest(int floor) {
+        Long best = null;
+        for (NavigableSet<Long> lifts : liftsByDirection.values()) {
+            best = closer(floor, best, closest(lifts, floor));
+        }
+        if (best == null) {
+            best = closest(fullLifts, floor);
+        }
+        return Optional.ofNullable(best).map(this::idOf);
+    }
+
+    /**
+     * @return the highest lift going up below {@code floor}, or the lowest lift going down above it
+     */
+    public Optional<String> findClosestMovingTowards(int floor, Direction requestedDirection) {
+        final Long found;
+        if (requestedDirection == Direction.UP) {
+            final NavigableSet<Long> goingUp = liftsByDirection.get(Direction.UP);
+            final Long below = goingUp.lower(key(floor, 0, 0));
+            found = (below == null) ? null : goingUp.ceiling(key(floorOf(below), 0, 0));
+        } else {
+            found = liftsByDirection.get(Direction.DOWN).ceiling(key(floor + 1, 0, 0));
+        }
+        return Optional.ofNullable(found).map(this::idOf);
+    }
+
+    private static Long closest(NavigableSet<Long> lifts, int floor) {
+        final Long above = lifts.ceiling(key(floor, 0, 0));
+        final Long belowHeaviest = lifts.lower(key(floor, 0, 0));
+        final Long below = (belowHeaviest == null) ? null : lifts.ceiling(key(floorOf(belowHeaviest), 0, 0));
+        return closer(floor, above, below);
+    }
+
+    private static Long closer(int floor, Long a, Long b) {
+        if (a == null || b == null) {
+            return (a == null) ? b : a;
+        }
+        final int byDistance = Integer.compare(Math.abs(floorOf(a) - floor), Math.abs(floorOf(b) - floor));
+        if (byDistance != 0) {
+            return (byDistance < 0) ? a : b;
+        }
+        final long byTonnage = (a & ~(FIELD_MASK << (2 * FIELD_BITS))) - (b & ~(FIELD_MASK << (2 * FIELD_BITS)));
+        return (byTonnage <= 0) ? a : b;
+    }
+
+    private String idOf(long key) {
+        return ids[(int) (key & FIELD_MASK)];
+    }
+
+    private static int floorOf(long key) {
+        return (int) (key >>> (2 * FIELD_BITS));
+    }
+
+    private static long key(int floor, int tonnage, int lift) {
+        return ((long) floor << (2 * FIELD_BITS)) | (((long) tonnage & FIELD_MASK) << FIELD_BITS) | lift;
+    }
+}
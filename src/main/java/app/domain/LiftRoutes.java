@@ -0,0 +1,197 @@
+package app.domain;
+
+import app.domain.enums.Direction;
+
+/**
+ * Copy of every lift's position, heading and stops, laid out as flat arrays so a hall call can
+ * be costed against all lifts in one pass. Arrival estimates follow the engine's sweep: a lift
+ * keeps its heading while stops remain ahead, stops at every pressed floor it passes, and an
+ * idle lift heads towards the farther of the nearest stops above and below. Full lifts are
+ * only picked when every other lift is full too, unless a rider gets off before they arrive.
+ */
+public final class LiftRoutes {
+
+    private final String[] ids;
+
+    private final int floorsQuantity;
+
+    private final int wordsPerLift;
+
+    private final int[] currentFloor;
+
+    private final Direction[] direction;
+
+    private final long[] travelNanosPerFloor;
+
+    private final long[] stops;
+
+    private final boolean[] full;
+
+    public LiftRoutes(String[] ids, int floorsQuantity) {
+        this.ids = ids;
+        this.floorsQuantity = floorsQuantity;
+        this.wordsPerLift = (floorsQuantity + Long.SIZE - 1) / Long.SIZE;
+        this.currentFloor = new int[ids.length];
+        this.direction = new Direction[ids.length];
+        this.travelNanosPerFloor = new long[ids.length];
+        this.stops = new long[ids.length * wordsPerLift];
+        this.full = new boolean[ids.length];
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public String getId(int lift) {
+        return ids[lift];
+    }
+
+    public int getWordsPerLift() {
+        return wordsPerLift;
+    }
+
+    /**
+     * @param stops pressed floors, 64 per word as in {@link LiftButtons#getWord(int)}
+     */
+    public void set(int lift, int floor, Direction heading, long travelNanos, long[] stops, boolean isFull) {
+        currentFloor[lift] = floor;
+        direction[lift] = heading;
+        travelNanosPerFloor[lift] = travelNanos;
+        full[lift] = isFull;
+        System.arraycopy(stops, 0, this.stops, lift * wordsPerLift, wordsPerLift);
+    }
+
+    public void addStop(int lift, int floor) {
+        if (floor < 0 || floor >= floorsQuantity) {
+            throw new RuntimeException(String.format("invalid floor %s", floor));
+        }
+        stops[lift * wordsPerLift + (floor >>> 6)] |= 1L << floor;
+    }
+
+    /**
+     * @return the lift estimated to reach {@code floor} first, full ones last, -1 when there are no lifts
+     */
+    public int findFastestArrival(int floor) {
+        int fastest = -1;
+        long fastestNanos = Long.MAX_VALUE;
+        boolean fastestFull = true;
+        for (int lift = 0; lift < ids.length; lift++) {
+            final boolean arrivesFull = full[lift] && !stopsBefore(lift, floor);
+            if (arrivesFull && !fastestFull) {
+                continue;
+            }
+            final long nanos = estimateArrivalNanos(lift, floor);
+            if (nanos < fastestNanos || (fastestFull && !arrivesFull)) {
+                fastestNanos = nanos;
+                fastest = lift;
+                fastestFull = arrivesFull;
+            }
+        }
+        return fastest;
+    }
+
+    /**
+     * Whether the lift reaches one of its stops no later than {@code floor}, letting riders off first.
+     */
+    private boolean stopsBefore(int lift, int floor) {
+        final int current = currentFloor[lift];
+        if (direction[lift] == Direction.UP) {
+            final int next = nextStopAbove(lift, current);
+            return next != LiftButtons.NO_FLOOR && (floor <= current || next <= floor);
+        }
+        if (direction[lift] == Direction.DOWN) {
+            final int next = nextStopBelow(lift, current);
+            return next != LiftButtons.NO_FLOOR && (floor >= current || next >= floor);
+        }
+        return false;
+    }
+
+    /**
+     * @return time for the lift to reach {@code floor} if it were added to its stops now
+     */
+    public long estimateArrivalNanos(int lift, int floor) {
+        final int current = currentFloor[lift];
+        Direction heading = direction[lift];
+        if (heading == Direction.ANY) {
+            if (floor == current) {
+                return 0;
+            }
+            heading = headingWhenIdle(lift, current, floor);
+        }
+        final int floors;
+        if (heading == Direction.UP) {
+            final int top = Math.max(highestStop(lift), current);
+            floors = (floor > current) ? floor - current : (top - current) + (top - floor);
+        } else {
+            final int bottom = Math.min(lowestStop(lift), current);
+            floors = (floor < current) ? current - floor : (current - bottom) + (floor - bottom);
+        }
+        return floors * travelNanosPerFloor[lift];
+    }
+
+    private Direction headingWhenIdle(int lift, int current, int floor) {
+        int above = nextStopAbove(lift, current);
+        int below = nextStopBelow(lift, current);
+        if (floor > current && (above == LiftButtons.NO_FLOOR || floor < above)) {
+            above = floor;
+        }
+        if (floor < current && (below == LiftButtons.NO_FLOOR || floor > below)) {
+            below = floor;
+        }
+        final int up = (above == LiftButtons.NO_FLOOR) ? 0 : above - current;
+        final int down = (below == LiftButtons.NO_FLOOR) ? 0 : current - below;
+        if (up == down) {
+            return (floor > current) ? Direction.UP : Direction.DOWN;
+        }
+        return (up > down) ? Direction.UP : Direction.DOWN;
+    }
+
+    private int nextStopAbove(int lift, int current) {
+        final int from = current + 1;
+        if (from >= floorsQuantity) {
+            return LiftButtons.NO_FLOOR;
+        }
+        final int base = lift * wordsPerLift;
+        int wordIndex = from >>> 6;
+        long word = stops[base + wordIndex] & (-1L << from);
+        while (word == 0) {
+            if (++wordIndex == wordsPerLift) {
+                return LiftButtons.NO_FLOOR;
+            }
+            word = stops[base + wordIndex];
+        }
+        return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    private int nextStopBelow(int lift, int current) {
+        final int from = Math.min(current, floorsQuantity) - 1;
+        if (from < 0) {
+            return LiftButtons.NO_FLOOR;
+        }
+        final int base = lift * wordsPerLift;
+        int wordIndex = from >>> 6;
+        long word = stops[base + wordIndex] & (-1L >>> (Long.SIZE - 1 - (from & 63)));
+        while (word == 0) {
+            if (--wordIndex < 0) {
+                return LiftButtons.NO_FLOOR;
+            }
+            word = stops[base + wordIndex];
+        }
+        return (wordIndex << 6) + Long.SIZE - 1 - Long.numberOfLeadingZeros(word);
+    }
+
+    /**
+     * @return highest pressed floor or {@link LiftButtons#NO_FLOOR}
+     */
+    private int highestStop(int lift) {
+        return nextStopBelow(lift, floorsQuantity);
+    }
+
+    /**
+     * @return lowest pressed floor, {@code floorsQuantity} if none
+     */
+    private int lowestStop(int lift) {
+        final int lowest = nextStopAbove(lift, -1);
+        return (lowest == LiftButtons.NO_FLOOR) ? floorsQuantity : lowest;
+    }
+}
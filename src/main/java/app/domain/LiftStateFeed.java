@@ -0,0 +1,151 @@
+package app.domain;
+
+import app.domain.enums.Direction;
+import app.domain.enums.LiftState;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Changes of a building's lifts as numbered deltas in a fixed ring shared by every reader, so
+ * any number of them can follow it or resume from a sequence number without copying lift state.
+ * Writers claim a sequence number and publish their slot; a reader falling a whole ring behind
+ * has to start over from a snapshot.
+ */
+public final class LiftStateFeed {
+
+    public static final int FLOOR = 1;
+
+    public static final int DIRECTION = 2;
+
+    public static final int STATE = 3;
+
+    public static final int LIGHT = 4;
+
+    public static final int STOP_ON = 5;
+
+    public static final int STOP_OFF = 6;
+
+    public static final int LOAD = 7;
+
+    /**
+     * Returned by {@link #get(long)} for a sequence number still being written.
+     */
+    public static final long NOT_PUBLISHED = -1;
+
+    /**
+     * Returned by {@link #get(long)} for a sequence number the ring has already reused.
+     */
+    public static final long OVERWRITTEN = -2;
+
+    private static final long WRITING = -1;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private static final LiftState[] STATES = LiftState.values();
+
+    private final String[] ids;
+
+    private final int mask;
+
+    private final long[] deltas;
+
+    private final AtomicLongArray published;
+
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public LiftStateFeed(String[] ids, int capacity) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.ids = ids;
+        this.mask = size - 1;
+        this.deltas = new long[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, i - (long) size);
+        }
+    }
+
+    public void floor(int lift, int floor) {
+        append(FLOOR, lift, floor);
+    }
+
+    public void direction(int lift, Direction direction) {
+        append(DIRECTION, lift, direction.ordinal());
+    }
+
+    public void state(int lift, LiftState state) {
+        append(STATE, lift, state.ordinal());
+    }
+
+    public void light(int lift, boolean lightOn) {
+        append(LIGHT, lift, lightOn ? 1 : 0);
+    }
+
+    public void stopOn(int lift, int floor) {
+        append(STOP_ON, lift, floor);
+    }
+
+    public void stopOff(int lift, int floor) {
+        append(STOP_OFF, lift, floor);
+    }
+
+    public void load(int lift, int passengers) {
+        append(LOAD, lift, passengers);
+    }
+
+    /**
+     * @return sequence number the next delta will get
+     */
+    public long getSequence() {
+        return nextSequence.get();
+    }
+
+    /**
+     * @return the delta, {@link #NOT_PUBLISHED} or {@link #OVERWRITTEN}
+     */
+    public long get(long sequence) {
+        final int slot = (int) (sequence & mask);
+        final long before = published.get(slot);
+        if (before != sequence) {
+            return (before > sequence || (before == WRITING && sequence + mask < nextSequence.get())) ? OVERWRITTEN : NOT_PUBLISHED;
+        }
+        final long delta = deltas[slot];
+        VarHandle.loadLoadFence();
+        return (published.get(slot) == sequence) ? delta : OVERWRITTEN;
+    }
+
+    public static int typeOf(long delta) {
+        return (int) (delta >>> 56);
+    }
+
+    public String liftOf(long delta) {
+        return ids[(int) (delta >>> 32) & 0xFFFFFF];
+    }
+
+    /**
+     * @return the value as it reads in the feed: a floor, direction or state name, 1 or 0 for the lights, passengers on board
+     */
+    public static String valueOf(long delta) {
+        final int value = (int) delta;
+        switch (typeOf(delta)) {
+            case DIRECTION:
+                return DIRECTIONS[value].name();
+            case STATE:
+                return STATES[value].name();
+            default:
+                return String.valueOf(value);
+        }
+    }
+
+    private void append(int type, int lift, int value) {
+        final long sequence = nextSequence.getAndIncrement();
+        final int slot = (int) (sequence & mask);
+        published.set(slot, WRITING);
+        deltas[slot] = ((long) type << 56) | ((long) lift << 32) | (value & 0xFFFFFFFFL);
+        published.set(slot, sequence);
+    }
+}
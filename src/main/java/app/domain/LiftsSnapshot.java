@@ -0,0 +1,20 @@
+package app.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * State of a building's lifts; applying the feed's deltas from {@code sequence} on brings it up to date.
+ */
+@Getter
+@AllArgsConstructor
+public final class LiftsSnapshot {
+
+    private final String buildingId;
+
+    private final long sequence;
+
+    private final Map<String, Lift> lifts;
+}
@@ -0,0 +1,12 @@
+package app.domain.enums;
+
+/**
+ * How a call was assigned: the rules of the rule-based strategy in the order they are tried,
+ * the first one finding a lift assigns the call, or the cost-based lowest estimated wait.
+ */
+public enum DispatchRule {
+    CLOSEST_IDLE,
+    CLOSEST_MOVING_TOWARDS,
+    CLOSEST,
+    LOWEST_ESTIMATED_WAIT
+}
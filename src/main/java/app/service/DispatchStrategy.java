@@ -0,0 +1,18 @@
+package app.service;
+
+import app.domain.ElevateRequest;
+
+import java.util.List;
+
+/**
+ * Decides which lift serves each hall call.
+ */
+public interface DispatchStrategy {
+
+    /**
+     * Calls of one batch are assigned in order, later ones may take earlier assignments into account.
+     *
+     * @return id of the lift assigned to each of the {@code requests}, in the same order
+     */
+    List<String> selectLifts(List<ElevateRequest> requests, LiftEngineService liftEngineService);
+}
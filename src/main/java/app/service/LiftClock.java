@@ -0,0 +1,26 @@
+package app.service;
+
+/**
+ * Simulation time used by the lift engines; it may run faster than the wall clock or be fully virtual.
+ */
+public interface LiftClock {
+
+    long nanoTime();
+
+    /**
+     * Blocks the calling thread for {@code nanos} of simulation time.
+     */
+    void sleep(long nanos) throws InterruptedException;
+
+    /**
+     * @return wall-clock nanos that pass while {@code nanos} of simulation time elapse
+     */
+    long toWallNanos(long nanos);
+
+    /**
+     * Virtual clocks don't advance on their own: whoever owns the timeline moves them forward.
+     */
+    boolean isVirtual();
+
+    void advanceTo(long nanoTime);
+}
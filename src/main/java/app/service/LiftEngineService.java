@@ -1,12 +1,50 @@
 package app.service;
 
 import app.domain.Lift;
+import app.domain.LiftFloorIndex;
+import app.domain.LiftRoutes;
+import app.domain.LiftStateFeed;
 
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface LiftEngineService {
 
     void enqueueStopRequest(String liftId, int floor);
 
+    void enqueueStopRequests(String liftId, Collection<Integer> floors);
+
     Map<String, Lift> getCurrentLiftsStateSnapshot();
+
+    LiftFloorIndex getLiftFloorIndex();
+
+    /**
+     * @return a copy of every lift's position, heading and stops, for costing hall calls
+     */
+    LiftRoutes getLiftRoutes();
+
+    /**
+     * @return every change of the lifts' floor, direction, state, lights, stops and load, in order
+     */
+    LiftStateFeed getLiftStateFeed();
+
+    /**
+     * @return time for the lift to reach {@code floor}, serving the stops it already has on the way
+     */
+    long estimateArrivalNanos(String liftId, int floor);
+
+    /**
+     * @return completes once the lift has stopped at {@code floor}, right away if it has no stop there
+     */
+    CompletableFuture<Void> whenStopServed(String liftId, int floor);
+
+    /**
+     * Reports the passengers getting off and on the lift where it stands, e.g. from its load weighing.
+     *
+     * @return passengers who could board, the others are left for another car
+     */
+    int transferPassengers(String liftId, int alighting, int boarding);
+
+    void addLiftEventListener(LiftEventListener listener);
 }
@@ -0,0 +1,40 @@
+package app.service;
+
+import app.domain.enums.Direction;
+
+import java.util.List;
+
+/**
+ * Lift movements reported by the engines, with {@link LiftClock} timestamps. Callbacks run on the
+ * lift's own thread with its lock held, so they must be quick; registering stops from them is fine.
+ * Lifts are identified by their position in the list given to {@link #registerLifts(List, int)}.
+ */
+public interface LiftEventListener {
+
+    /**
+     * Called once with every lift before the first event.
+     */
+    default void registerLifts(List<String> liftIds, int floorsQuantity) {
+    }
+
+    default void onDeparture(int lift, int floor, Direction direction, long nanoTime) {
+    }
+
+    default void onFloorArrival(int lift, int floor, long nanoTime) {
+    }
+
+    /**
+     * The lift served a stop requested at {@code floor}.
+     */
+    default void onStop(int lift, int floor, long nanoTime) {
+    }
+
+    default void onIdle(int lift, int floor, long nanoTime) {
+    }
+
+    /**
+     * Passengers got off and on at {@code floor}, leaving {@code load} on board out of {@code capacity}.
+     */
+    default void onPassengerTransfer(int lift, int floor, int alighted, int boarded, int load, int capacity, long nanoTime) {
+    }
+}
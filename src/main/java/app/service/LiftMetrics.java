@@ -0,0 +1,28 @@
+package app.service;
+
+import app.domain.enums.DispatchRule;
+
+/**
+ * Operational counters fed from the engine and dispatcher hot paths; implementations must not
+ * block or allocate per call. Lift movements arrive through the {@link LiftEventListener} callbacks.
+ */
+public interface LiftMetrics extends LiftEventListener {
+
+    LiftMetrics NONE = new LiftMetrics() {
+    };
+
+    default void recordDispatch(DispatchRule rule, long nanos) {
+    }
+
+    default void recordNoLiftFound() {
+    }
+
+    /**
+     * A hall call at {@code floor} was assigned to the lift; its wait ends when that lift stops there.
+     */
+    default void recordHallCall(String liftId, int floor) {
+    }
+
+    default void recordLockWait(long nanos) {
+    }
+}
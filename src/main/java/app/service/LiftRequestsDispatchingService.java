@@ -1,9 +1,24 @@
 package app.service;
 
 import app.domain.ElevateRequest;
+import app.domain.LiftAssignment;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface LiftRequestsDispatchingService {
 
-    void dispatchLiftRequest(ElevateRequest request);
+    LiftAssignment dispatchLiftRequest(ElevateRequest request);
+
+    /**
+     * @return the assignment of each of the {@code requests}, in the same order
+     */
+    List<LiftAssignment> dispatchLiftRequests(Collection<ElevateRequest> requests);
+
+    /**
+     * Same as {@link #dispatchLiftRequests(Collection)} for callers that only acknowledge the requests,
+     * so no arrival is estimated; the requests aren't referenced once it returns.
+     */
+    void enqueueLiftRequests(Collection<ElevateRequest> requests);
 
 }
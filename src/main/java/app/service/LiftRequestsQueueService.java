@@ -0,0 +1,35 @@
+package app.service;
+
+import app.domain.DispatchQueueStats;
+import app.domain.ElevateRequest;
+import app.domain.LiftAssignment;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+public interface LiftRequestsQueueService {
+
+    /**
+     * @return how many of the requests were accepted before the queue got full
+     * @throws IllegalArgumentException when any of the requests is invalid, none being queued
+     */
+    int enqueueAll(Collection<ElevateRequest> requests);
+
+    /**
+     * Checks the requests without queueing any, so a batch spread over buildings can be refused whole.
+     *
+     * @throws IllegalArgumentException when any of the requests is invalid
+     */
+    void validateAll(Collection<ElevateRequest> requests);
+
+    /**
+     * Queues the request without waiting for it to be dispatched.
+     *
+     * @return completes with the assignment once dispatched, exceptionally with a
+     * {@link java.util.concurrent.RejectedExecutionException} when the queue is full
+     * or an {@link IllegalArgumentException} when the request is invalid
+     */
+    CompletableFuture<LiftAssignment> submit(ElevateRequest request);
+
+    DispatchQueueStats getStats();
+}
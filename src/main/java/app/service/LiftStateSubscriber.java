@@ -0,0 +1,21 @@
+package app.service;
+
+import java.io.IOException;
+
+/**
+ * Receives a building's lift state changes as server-sent event frames, whatever carries them to the client.
+ */
+public interface LiftStateSubscriber {
+
+    /**
+     * Called by one thread at a time.
+     *
+     * @throws IOException when the client is gone, which ends the subscription
+     */
+    void send(byte[] frame) throws IOException;
+
+    /**
+     * The building is shutting down, no more frames follow.
+     */
+    void complete();
+}
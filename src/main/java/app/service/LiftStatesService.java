@@ -0,0 +1,29 @@
+package app.service;
+
+import app.domain.LiftsSnapshot;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface LiftStatesService {
+
+    /**
+     * @param buildingId may be null while there is a single building
+     * @throws IllegalArgumentException for a building this node doesn't run, as do the other methods
+     */
+    LiftsSnapshot getLifts(String buildingId);
+
+    /**
+     * Streams changes of the building's lifts as server-sent events, starting with a snapshot
+     * unless {@code fromSequence} is still in the feed.
+     *
+     * @param fromSequence sequence to resume from, negative to start with a snapshot
+     */
+    void subscribe(String buildingId, long fromSequence, LiftStateSubscriber subscriber);
+
+    void unsubscribe(String buildingId, LiftStateSubscriber subscriber);
+
+    /**
+     * @return completes once the lift has stopped at {@code floor}, right away if it has no stop there
+     */
+    CompletableFuture<Void> whenStopServed(String buildingId, String liftId, int floor);
+}
@@ -0,0 +1,16 @@
+package app.service;
+
+import app.domain.FloorOccupancy;
+
+/**
+ * Decides where a lift left without stops waits for the next hall call.
+ */
+public interface ParkingStrategy {
+
+    /**
+     * Called with the lift's lock held; the lift itself is still counted idle where it parked last, if anywhere.
+     *
+     * @return floor to park the lift at, its current floor to stay where it is
+     */
+    int selectParkingFloor(int lift, int currentFloor, FloorOccupancy floorOccupancy);
+}
@@ -0,0 +1,15 @@
+package app.service;
+
+/**
+ * Runs actions on the engine's own timeline, so load injected from outside lines up with lift
+ * events even when the clock is virtual and jumps from one event to the next.
+ */
+public interface SimulationTimeline {
+
+    LiftClock getLiftClock();
+
+    /**
+     * Runs {@code action} once the timeline reaches {@code nanoTime} of {@link #getLiftClock()}.
+     */
+    void scheduleAt(long nanoTime, Runnable action);
+}
@@ -0,0 +1,499 @@
+package app.service.impl;
+
+import app.config.LiftsConfiguration;
+import app.domain.FloorOccupancy;
+import app.domain.Lift;
+import app.domain.LiftButtons;
+import app.domain.LiftFloorIndex;
+import app.domain.LiftRoutes;
+import app.domain.LiftStateFeed;
+import app.domain.enums.Direction;
+import app.domain.enums.LiftState;
+import app.service.LiftClock;
+import app.service.LiftEngineService;
+import app.service.LiftEventListener;
+import app.service.LiftMetrics;
+import app.service.ParkingStrategy;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Lift state and the state transitions shared by every engine; subclasses only decide
+ * how lifts are driven between those transitions (threads, events).
+ * <p>
+ * Lifts are addressed by their index in the {@link LiftStateStore}: string ids are resolved once
+ * where a call enters the engine and only looked up again for logging.
+ */
+@Slf4j
+public abstract class AbstractLiftEngineService implements LiftEngineService {
+
+    /**
+     * Lightest simulated car, which takes {@code MIN_TONNAGE / Lift.PASSENGER_KG} passengers.
+     */
+    private static final int MIN_TONNAGE = 400;
+
+    @Setter
+    protected int liftsQuantity;
+
+    @Setter
+    protected int floorsQuantity;
+
+    @Setter
+    protected String buildingId = LiftsConfiguration.DEFAULT_BUILDING;
+
+    protected final LiftsConfiguration liftsConfiguration;
+
+    protected final LiftClock liftClock;
+
+    @Setter
+    private LiftMetrics liftMetrics = LiftMetrics.NONE;
+
+    @Setter
+    private LiftStatePersistence liftStatePersistence;
+
+    @Setter
+    private ParkingStrategy parkingStrategy = new GroundFloorParkingStrategy();
+
+    private LiftStateStore liftsState;
+
+    private Random random;
+
+    private Lock[] liftLocks;
+
+    private Condition[] requestAvailabilityConditions;
+
+    private volatile LiftEventListener[] listeners = new LiftEventListener[0];
+
+    /**
+     * Callers waiting for a lift to stop at a floor, by lift index then floor; guarded by the lift's lock.
+     */
+    private List<CompletableFuture<Void>>[][] stopWaiters;
+
+    /**
+     * Simulated passengers on board by destination floor, by lift index; guarded by the lift's lock.
+     */
+    private int[][] simulatedRiders;
+
+    protected AbstractLiftEngineService(LiftsConfiguration liftsConfiguration, LiftClock liftClock) {
+        this.liftsConfiguration = liftsConfiguration;
+        this.liftClock = liftClock;
+    }
+
+    /**
+     * Recovers or creates the lifts and starts them; the owning {@link BuildingShard} calls it once configured.
+     */
+    public void initialize() {
+        random = (liftsConfiguration.getRandomSeed() != null) ? new Random(liftsConfiguration.getRandomSeed()) : new Random();
+        final List<Lift> lifts = Optional.ofNullable(liftStatePersistence)
+                .flatMap(persistence -> persistence.recover(buildingId, liftsQuantity, floorsQuantity, liftsConfiguration.getTravelNanosPerFloor()))
+                .orElseGet(() -> IntStream.rangeClosed(1, liftsQuantity)
+                        .mapToObj(k -> Lift.builder()
+                                .buildingId(buildingId)
+                                .id(String.valueOf(k))
+                                .travelNanosPerFloor(liftsConfiguration.getTravelNanosPerFloor())
+                                .tonnage(MIN_TONNAGE + random.nextInt(1000))
+                                .buttons(new LiftButtons(floorsQuantity))
+                                .state(LiftState.STOPPED)
+                                .direction(Direction.UP)
+                                .build())
+                        .collect(Collectors.toList()));
+        liftsState = new LiftStateStore(buildingId, lifts, liftsConfiguration.getFeedCapacity(), liftsConfiguration.getLoadBypass());
+        stopWaiters = newStopWaiters(liftsState.size());
+        simulatedRiders = new int[liftsState.size()][];
+
+        liftLocks = new Lock[liftsState.size()];
+        requestAvailabilityConditions = new Condition[liftsState.size()];
+        for (int lift = 0; lift < liftsState.size(); lift++) {
+            liftLocks[lift] = new ReentrantLock();
+            requestAvailabilityConditions[lift] = liftLocks[lift].newCondition();
+        }
+        final List<String> ids = IntStream.range(0, liftsState.size()).mapToObj(liftsState::getId).collect(Collectors.toList());
+        if (liftMetrics != LiftMetrics.NONE) {
+            addLiftEventListener(liftMetrics);
+        }
+        for (LiftEventListener listener : listeners) {
+            listener.registerLifts(ids, floorsQuantity);
+        }
+        if (liftStatePersistence != null) {
+            liftStatePersistence.start(liftsState);
+        }
+        if (liftsConfiguration.isLazyStart()) {
+            for (int lift = 0; lift < liftsState.size(); lift++) {
+                if (liftsState.getButtons(lift).isEveryButtonTurnedOff()) {
+                    liftsState.park(lift);
+                }
+            }
+        }
+        startLifts(liftsState.size());
+    }
+
+    /**
+     * Lifts are numbered from 0 to {@code liftsCount - 1}; parked ones are started by their first stop,
+     * through {@link #notifyButtonIsPressed(int)}.
+     */
+    protected abstract void startLifts(int liftsCount);
+
+    public abstract void shutdown();
+
+    /**
+     * Called with the lift's lock held once a parked lift has new stops to serve.
+     */
+    protected abstract void notifyButtonIsPressed(int lift);
+
+    @Override
+    public void enqueueStopRequest(String id, int floor) {
+        final int lift = liftsState.indexOf(id);
+        liftsState.addPendingStop(lift, floor);
+        wakeUpIfParked(lift);
+    }
+
+    @Override
+    public void enqueueStopRequests(String id, Collection<Integer> floors) {
+        final int lift = liftsState.indexOf(id);
+        floors.forEach(floor -> liftsState.addPendingStop(lift, floor));
+        wakeUpIfParked(lift);
+    }
+
+    private void wakeUpIfParked(int lift) {
+        if (liftsState.isParked(lift)) {
+            acquireLockOnLift(lift);
+            try {
+                if (liftsState.unpark(lift)) {
+                    notifyButtonIsPressed(lift);
+                }
+            } finally {
+                releaseLockOnLift(lift);
+            }
+        }
+    }
+
+    /**
+     * Marks the lift parked unless stops arrived meanwhile; caller holds the lift's lock.
+     *
+     * @return false if the lift has pending stops and must not wait
+     */
+    protected boolean parkLift(int lift) {
+        liftsState.park(lift);
+        if (liftsState.hasPendingStops(lift)) {
+            liftsState.unpark(lift);
+            return false;
+        }
+        return true;
+    }
+
+    protected boolean isParked(int lift) {
+        return liftsState.isParked(lift);
+    }
+
+    protected void unparkLift(int lift) {
+        liftsState.unpark(lift);
+    }
+
+    protected void drainPendingStops(int lift) {
+        liftsState.drainPendingStops(lift);
+    }
+
+    @Override
+    public Map<String, Lift> getCurrentLiftsStateSnapshot() {
+        return liftsState.snapshot();
+    }
+
+    @Override
+    public LiftFloorIndex getLiftFloorIndex() {
+        return liftsState.getFloorIndex();
+    }
+
+    @Override
+    public LiftRoutes getLiftRoutes() {
+        return liftsState.routes();
+    }
+
+    @Override
+    public long estimateArrivalNanos(String liftId, int floor) {
+        return liftsState.routes(liftsState.indexOf(liftId)).estimateArrivalNanos(0, floor);
+    }
+
+    @Override
+    public CompletableFuture<Void> whenStopServed(String liftId, int floor) {
+        final int index = liftsState.indexOf(liftId);
+        if (floor < 0 || floor >= floorsQuantity) {
+            throw new RuntimeException(String.format("invalid floor %s", floor));
+        }
+        final CompletableFuture<Void> served = new CompletableFuture<>();
+        acquireLockOnLift(index);
+        try {
+            if (!liftsState.hasStop(index, floor)) {
+                served.complete(null);
+                return served;
+            }
+            if (stopWaiters[index] == null) {
+                stopWaiters[index] = newFloorWaiters(floorsQuantity);
+            }
+            if (stopWaiters[index][floor] == null) {
+                stopWaiters[index][floor] = new ArrayList<>();
+            } else {
+                stopWaiters[index][floor].removeIf(CompletableFuture::isDone);
+            }
+            stopWaiters[index][floor].add(served);
+        } finally {
+            releaseLockOnLift(index);
+        }
+        return served;
+    }
+
+    @Override
+    public int transferPassengers(String liftId, int alighting, int boarding) {
+        final int lift = liftsState.indexOf(liftId);
+        acquireLockOnLift(lift);
+        try {
+            return transferPassengers(lift, alighting, boarding);
+        } finally {
+            releaseLockOnLift(lift);
+        }
+    }
+
+    private int transferPassengers(int lift, int alighting, int boarding) {
+        final int alighted = Math.min(alighting, liftsState.getLoad(lift));
+        final int boarded = liftsState.transferPassengers(lift, alighting, boarding);
+        final int floor = liftsState.getCurrentFloor(lift);
+        for (LiftEventListener listener : listeners) {
+            listener.onPassengerTransfer(lift, floor, alighted, boarded, liftsState.getLoad(lift),
+                    liftsState.getPassengerCapacity(lift), liftClock.nanoTime());
+        }
+        return boarded;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<CompletableFuture<Void>>[][] newStopWaiters(int liftsQuantity) {
+        return new List[liftsQuantity][];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<CompletableFuture<Void>>[] newFloorWaiters(int floorsQuantity) {
+        return new List[floorsQuantity];
+    }
+
+    @Override
+    public LiftStateFeed getLiftStateFeed() {
+        return liftsState.getStateFeed();
+    }
+
+    @Override
+    public synchronized void addLiftEventListener(LiftEventListener listener) {
+        final LiftEventListener[] extended = Arrays.copyOf(listeners, listeners.length + 1);
+        extended[listeners.length] = listener;
+        listeners = extended;
+    }
+
+    /**
+     * @return next floor to head to in the current direction or {@link LiftButtons#NO_FLOOR}
+     */
+    protected int nextRequestedFloor(int lift) {
+        final Direction direction = getDirection(lift);
+        if (direction == Direction.ANY) {
+            return LiftButtons.NO_FLOOR;
+        }
+        final int nextFloorRequested = (direction == Direction.UP)
+                ? getButtons(lift).getNextOnTheWayUp(getCurrentFloor(lift))
+                : getButtons(lift).getNextOnTheWayDown(getCurrentFloor(lift));
+        if (nextFloorRequested != LiftButtons.NO_FLOOR) {
+            if (log.isDebugEnabled()) {
+                log.debug("Lift {} from {} heading to {} floor.", getId(lift), getCurrentFloor(lift), nextFloorRequested);
+            }
+        } else {
+            setProcessingDirection(lift, Direction.ANY);
+        }
+        return nextFloorRequested;
+    }
+
+    protected void startMoving(int lift, Direction direction) {
+        if (log.isDebugEnabled()) {
+            log.debug("About to moving lift {} from {} {}.", getId(lift), getCurrentFloor(lift), direction.name());
+        }
+        startAndTurnLightsOn(lift);
+        final int floor = getCurrentFloor(lift);
+        for (LiftEventListener listener : listeners) {
+            listener.onDeparture(lift, floor, direction, liftClock.nanoTime());
+        }
+    }
+
+    protected void arriveAtNextFloor(int lift, Direction direction, boolean finalIterationToRequester) {
+        setNextFloorAndStop(lift, direction);
+        if (finalIterationToRequester && liftsConfiguration.isSimulatedPassengers()) {
+            simulatePassengers(lift);
+        }
+    }
+
+    protected void finishIteration(int lift) {
+        turnOffCurrentButtonAndCheckState(lift);
+
+        if (getDirection(lift) == Direction.ANY) {
+            parkWhenIdle(lift);
+        }
+    }
+
+    /**
+     * Passengers riding to this floor get off, then up to two get on, as many as there is room for,
+     * and press their floors. Two random floors are drawn, the current one and a repeat dropped.
+     */
+    private void simulatePassengers(int lift) {
+        final int floor = getCurrentFloor(lift);
+        if (simulatedRiders[lift] == null) {
+            simulatedRiders[lift] = new int[floorsQuantity];
+        }
+        final int[] riders = simulatedRiders[lift];
+        // the draws random.ints(0, floorsQuantity).limit(2) made on Java 11, so seeded runs keep their figures
+        final int drawn = random.nextInt(floorsQuantity);
+        final int drawnNext = random.nextInt(floorsQuantity);
+        final int first = (drawn != floor) ? drawn : drawnNext;
+        final int second = (drawn != floor && drawnNext != drawn && drawnNext != floor) ? drawnNext : LiftButtons.NO_FLOOR;
+        final int destinations = (first == floor) ? 0 : (second == LiftButtons.NO_FLOOR) ? 1 : 2;
+        final int boarded = transferPassengers(lift, riders[floor], destinations);
+        riders[floor] = 0;
+        if (boarded > 0) {
+            riders[first]++;
+            liftsState.turnOnButtonAtFloor(lift, first);
+        }
+        if (boarded > 1) {
+            riders[second]++;
+            liftsState.turnOnButtonAtFloor(lift, second);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Lift {} reached the floor requester waited it for and {} passengers boarded.", getId(lift), boarded);
+        }
+    }
+
+    private void turnOffCurrentButtonAndCheckState(int lift) {
+        final LiftButtons buttons = liftsState.getButtons(lift);
+        final int currentFloor = liftsState.getCurrentFloor(lift);
+        if (buttons.isButtonPressed(currentFloor)) {
+            liftsState.turnOffButtonAtFloor(lift, currentFloor);
+            for (LiftEventListener listener : listeners) {
+                listener.onStop(lift, currentFloor, liftClock.nanoTime());
+            }
+            if (stopWaiters[lift] != null && stopWaiters[lift][currentFloor] != null) {
+                stopWaiters[lift][currentFloor].forEach(served -> served.complete(null));
+                stopWaiters[lift][currentFloor] = null;
+            }
+        }
+        if (buttons.isEveryButtonTurnedOff()) {
+            liftsState.setDirection(lift, Direction.ANY);
+        }
+        log.debug("Lift {} buttons: {} ", getId(lift), buttons);
+    }
+
+    private void setProcessingDirection(int lift, Direction direction) {
+        log.debug("Lift {} reached end position and ready to go direction: {} ", getId(lift), direction);
+        liftsState.setDirection(lift, direction);
+    }
+
+    protected void stopAndTurnLightsOff(int lift) {
+        log.debug("Lift {} stopping and turning lights off", getId(lift));
+        liftsState.setStateAndLights(lift, LiftState.STOPPED, false);
+        for (LiftEventListener listener : listeners) {
+            listener.onIdle(lift, liftsState.getCurrentFloor(lift), liftClock.nanoTime());
+        }
+    }
+
+    private void startAndTurnLightsOn(int lift) {
+        log.debug("Lift {} start moving with lights on", getId(lift));
+        liftsState.setStateAndLights(lift, LiftState.MOVING, true);
+    }
+
+    private void setNextFloorAndStop(int lift, Direction direction) {
+        final int currentFloor = liftsState.getCurrentFloor(lift);
+        liftsState.setCurrentFloorAndState(lift, (direction == Direction.UP) ? currentFloor + 1 : currentFloor - 1, LiftState.STOPPED);
+        if (log.isDebugEnabled()) {
+            log.debug("Lift {} reached {} floor after going {}.", getId(lift), liftsState.getCurrentFloor(lift), liftsState.getDirection(lift).name());
+        }
+        for (LiftEventListener listener : listeners) {
+            listener.onFloorArrival(lift, liftsState.getCurrentFloor(lift), liftClock.nanoTime());
+        }
+    }
+
+    private int distanceToNextFloor(int lift) {
+        final int currentFloor = getCurrentFloor(lift);
+        final LiftButtons buttons = getButtons(lift);
+        final int nextFloorRequestedAbove = buttons.getNextOnTheWayUp(currentFloor);
+        final int nextFloorRequestedBelow = buttons.getNextOnTheWayDown(currentFloor);
+        final int possibleUp = (nextFloorRequestedAbove != LiftButtons.NO_FLOOR) ? nextFloorRequestedAbove : currentFloor;
+        final int possibleDown = (nextFloorRequestedBelow != LiftButtons.NO_FLOOR) ? nextFloorRequestedBelow : currentFloor;
+        return Math.abs(possibleUp - currentFloor) - Math.abs(currentFloor - possibleDown);
+    }
+
+    /**
+     * Heads for the closest stop left, up when there are stops just as far in both directions,
+     * or else lets the {@link ParkingStrategy} pick where the lift waits.
+     */
+    private void parkWhenIdle(int lift) {
+        if (getButtons(lift).isEveryButtonTurnedOff()) {
+            final FloorOccupancy floorOccupancy = liftsState.getFloorOccupancy();
+            final int currentFloor = getCurrentFloor(lift);
+            final int parkingFloor = parkingStrategy.selectParkingFloor(lift, currentFloor, floorOccupancy);
+            floorOccupancy.setIdle(lift, parkingFloor);
+            if (parkingFloor != currentFloor) {
+                liftsState.turnOnButtonAtFloor(lift, parkingFloor);
+                if (log.isDebugEnabled()) {
+                    log.debug("Lift {} is idle, parking it at floor {}.", getId(lift), parkingFloor);
+                }
+            }
+        }
+        final int distanceToNextFloor = distanceToNextFloor(lift);
+        if (distanceToNextFloor > 0 || (distanceToNextFloor == 0 && !getButtons(lift).isEveryButtonTurnedOff())) {
+            setProcessingDirection(lift, Direction.UP);
+        }
+        if (distanceToNextFloor < 0) {
+            setProcessingDirection(lift, Direction.DOWN);
+        }
+    }
+
+    protected Condition getRequestAvailabilityCondition(int lift) {
+        return requestAvailabilityConditions[lift];
+    }
+
+    protected void acquireLockOnLift(int lift) {
+        final Lock lock = liftLocks[lift];
+        if (!lock.tryLock()) {
+            final long started = System.nanoTime();
+            lock.lock();
+            liftMetrics.recordLockWait(System.nanoTime() - started);
+        }
+    }
+
+    protected void releaseLockOnLift(int lift) {
+        liftLocks[lift].unlock();
+    }
+
+    protected boolean isFinalIterationToRequester(int currentPosition, int requestedPosition) {
+        return Math.abs(currentPosition - requestedPosition) == 1;
+    }
+
+    protected String getId(int lift) {
+        return liftsState.getId(lift);
+    }
+
+    protected Direction getDirection(int lift) {
+        return liftsState.getDirection(lift);
+    }
+
+    protected long getTravelNanosPerFloor(int lift) {
+        return liftsState.getTravelNanosPerFloor(lift);
+    }
+
+    protected LiftButtons getButtons(int lift) {
+        return liftsState.getButtons(lift);
+    }
+
+    protected int getCurrentFloor(int lift) {
+        return liftsState.getCurrentFloor(lift);
+    }
+
+}
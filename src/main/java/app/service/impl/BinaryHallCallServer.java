@@ -0,0 +1,337 @@
+package app.service.impl;
+
+import app.domain.ElevateRequest;
+import app.domain.enums.Direction;
+import com.jcabi.log.VerboseRunnable;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Takes hall calls from gateways as fixed-size binary frames over TCP and UDP and hands them straight
+ * to the buildings' dispatchers, all on one selector thread. A request frame is 16 bytes, big-endian:
+ * <pre>
+ * 0  long  sequence, echoed in the ack
+ * 8  short building, its position in lift.buildings (0 for the single default building), followed
+ *          by lift.remote-buildings
+ * 10 short floor
+ * 12 byte  direction, 0 UP, 1 DOWN or 2 ANY
+ * 13       3 reserved bytes
+ * </pre>
+ * and is answered by a 16-byte ack: the sequence, a status byte ({@link #ACCEPTED}, {@link #INVALID},
+ * {@link #FAILED} or {@link #REMOTE}) and 7 reserved bytes. The frames of one read are decoded into pooled requests,
+ * dispatched as one batch per building and acknowledged with one write; a connection isn't read again
+ * until its acks are written. A datagram carries whole frames and gets one datagram of acks back,
+ * one that gets lost is for the gateway to resend.
+ * <p>
+ * Only the buildings run by this node are served: a call for one of lift.remote-buildings is not
+ * forwarded, as that would hold the selector thread on another node, but nacked with {@link #REMOTE}
+ * for the gateway to send to that node's own binary port.
+ */
+@Slf4j
+public class BinaryHallCallServer {
+
+    public static final int FRAME_SIZE = 16;
+
+    public static final int ACK_SIZE = 16;
+
+    public static final byte ACCEPTED = 0;
+
+    public static final byte INVALID = 1;
+
+    public static final byte FAILED = 2;
+
+    /**
+     * The building is run by another node, which the frame has to be sent to.
+     */
+    public static final byte REMOTE = 3;
+
+    /**
+     * Frames handled per read, which sizes the connection buffers and the request pools.
+     */
+    private static final int MAX_FRAMES_PER_READ = 1024;
+
+    private static final int MAX_DATAGRAMS_PER_WAKEUP = 64;
+
+    private static final int INVALID_BUILDING = -1;
+
+    private static final int REMOTE_BUILDING = -2;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private static final class Connection {
+
+        private final SocketChannel channel;
+
+        private final ByteBuffer in = ByteBuffer.allocateDirect(FRAME_SIZE * MAX_FRAMES_PER_READ);
+
+        private final ByteBuffer out = ByteBuffer.allocateDirect(ACK_SIZE * MAX_FRAMES_PER_READ);
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final BuildingShard[] buildings;
+
+    private final int[] floorsQuantities;
+
+    private final int remoteBuildingsQuantity;
+
+    private final int tcpPort;
+
+    private final int udpPort;
+
+    private final ElevateRequest[][] requestPools;
+
+    private final List<List<ElevateRequest>> batches = new ArrayList<>();
+
+    private final boolean[] failedBuildings;
+
+    private final long[] sequences = new long[MAX_FRAMES_PER_READ];
+
+    private final int[] frameBuildings = new int[MAX_FRAMES_PER_READ];
+
+    private final ByteBuffer datagramIn = ByteBuffer.allocateDirect(FRAME_SIZE * MAX_FRAMES_PER_READ);
+
+    private final ByteBuffer datagramOut = ByteBuffer.allocateDirect(ACK_SIZE * MAX_FRAMES_PER_READ);
+
+    private final Consumer<SelectionKey> handler = this::handle;
+
+    private Selector selector;
+
+    private ServerSocketChannel tcpChannel;
+
+    private DatagramChannel udpChannel;
+
+    private ExecutorService executor;
+
+    /**
+     * @param remoteBuildingsQuantity buildings of other nodes, numbered after {@code buildings}
+     * @param tcpPort                 listened on unless 0, as is {@code udpPort}
+     */
+    public BinaryHallCallServer(Collection<BuildingShard> buildings, int remoteBuildingsQuantity, int tcpPort, int udpPort) {
+        this.buildings = buildings.toArray(new BuildingShard[0]);
+        this.remoteBuildingsQuantity = remoteBuildingsQuantity;
+        this.floorsQuantities = new int[this.buildings.length];
+        this.requestPools = new ElevateRequest[this.buildings.length][MAX_FRAMES_PER_READ];
+        this.failedBuildings = new boolean[this.buildings.length];
+        for (int building = 0; building < this.buildings.length; building++) {
+            floorsQuantities[building] = this.buildings[building].getLiftEngineService().floorsQuantity;
+            for (int i = 0; i < MAX_FRAMES_PER_READ; i++) {
+                requestPools[building][i] = ElevateRequest.builder().buildingId(this.buildings[building].getBuildingId()).build();
+            }
+            batches.add(new ArrayList<>(MAX_FRAMES_PER_READ));
+        }
+        this.tcpPort = tcpPort;
+        this.udpPort = udpPort;
+    }
+
+    @PostConstruct
+    public void initialize() throws IOException {
+        if (tcpPort == 0 && udpPort == 0) {
+            return;
+        }
+        selector = Selector.open();
+        if (tcpPort != 0) {
+            tcpChannel = ServerSocketChannel.open();
+            tcpChannel.bind(new InetSocketAddress(tcpPort));
+            tcpChannel.configureBlocking(false);
+            tcpChannel.register(selector, SelectionKey.OP_ACCEPT);
+        }
+        if (udpPort != 0) {
+            udpChannel = DatagramChannel.open();
+            udpChannel.bind(new InetSocketAddress(udpPort));
+            udpChannel.configureBlocking(false);
+            udpChannel.register(selector, SelectionKey.OP_READ);
+        }
+        executor = Executors.newSingleThreadExecutor();
+        executor.submit(new VerboseRunnable(this::serve));
+        log.info("Binary hall calls on tcp port {}, udp port {}", tcpPort, udpPort);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void serve() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                selector.select(handler);
+            }
+        } catch (IOException e) {
+            log.error("Binary hall call listener failed", e);
+        } finally {
+            close();
+        }
+        log.debug("Binary hall call listener stopped");
+    }
+
+    private void handle(SelectionKey key) {
+        try {
+            if (key.isAcceptable()) {
+                accept();
+            } else if (key.channel() == udpChannel) {
+                receive();
+            } else if (key.isWritable()) {
+                flush(key);
+            } else if (key.isReadable()) {
+                read(key);
+            }
+        } catch (IOException e) {
+            if (key.attachment() == null) {
+                log.error("Failed to take binary hall calls", e);
+            } else {
+                log.debug("Gateway connection closed: {}", e.getMessage());
+                disconnect(key);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        final SocketChannel channel = tcpChannel.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        final Connection connection = (Connection) key.attachment();
+        if (connection.channel.read(connection.in) < 0) {
+            disconnect(key);
+            return;
+        }
+        connection.in.flip();
+        process(connection.in, connection.out);
+        connection.in.compact();
+        connection.out.flip();
+        flush(key);
+    }
+
+    /**
+     * Stops reading a connection whose acks can't all be written, until they are.
+     */
+    private void flush(SelectionKey key) throws IOException {
+        final Connection connection = (Connection) key.attachment();
+        connection.channel.write(connection.out);
+        if (connection.out.hasRemaining()) {
+            key.interestOps(SelectionKey.OP_WRITE);
+        } else {
+            connection.out.clear();
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void receive() throws IOException {
+        for (int i = 0; i < MAX_DATAGRAMS_PER_WAKEUP; i++) {
+            datagramIn.clear();
+            final SocketAddress gateway = udpChannel.receive(datagramIn);
+            if (gateway == null) {
+                return;
+            }
+            datagramIn.flip();
+            datagramOut.clear();
+            process(datagramIn, datagramOut);
+            datagramOut.flip();
+            udpChannel.send(datagramOut, gateway);
+        }
+    }
+
+    /**
+     * Dispatches the whole frames of {@code in} and puts their acks into {@code out}, which has room for them.
+     */
+    private void process(ByteBuffer in, ByteBuffer out) {
+        int frames = 0;
+        while (in.remaining() >= FRAME_SIZE && frames < MAX_FRAMES_PER_READ) {
+            final int position = in.position();
+            sequences[frames] = in.getLong(position);
+            frameBuildings[frames] = decode(in, position);
+            in.position(position + FRAME_SIZE);
+            frames++;
+        }
+        for (int building = 0; building < buildings.length; building++) {
+            final List<ElevateRequest> batch = batches.get(building);
+            failedBuildings[building] = false;
+            if (!batch.isEmpty()) {
+                try {
+                    buildings[building].getLiftRequestsDispatchingService().enqueueLiftRequests(batch);
+                } catch (RuntimeException e) {
+                    failedBuildings[building] = true;
+                    log.error("Failed to dispatch {} binary hall calls of building {}", batch.size(), buildings[building].getBuildingId(), e);
+                }
+                batch.clear();
+            }
+        }
+        for (int frame = 0; frame < frames; frame++) {
+            final int building = frameBuildings[frame];
+            final byte status = (building == INVALID_BUILDING) ? INVALID
+                    : (building == REMOTE_BUILDING) ? REMOTE
+                    : failedBuildings[building] ? FAILED : ACCEPTED;
+            out.putLong(sequences[frame]).put(status).put((byte) 0).putShort((short) 0).putInt(0);
+        }
+    }
+
+    /**
+     * @return the building the frame's request was added to the batch of, {@link #REMOTE_BUILDING}
+     * or {@link #INVALID_BUILDING}
+     */
+    private int decode(ByteBuffer in, int position) {
+        final int building = in.getShort(position + 8) & 0xFFFF;
+        final int floor = in.getShort(position + 10) & 0xFFFF;
+        final int direction = in.get(position + 12) & 0xFF;
+        if (building >= buildings.length) {
+            return (building < buildings.length + remoteBuildingsQuantity) ? REMOTE_BUILDING : INVALID_BUILDING;
+        }
+        if (floor >= floorsQuantities[building] || direction >= DIRECTIONS.length) {
+            return INVALID_BUILDING;
+        }
+        final List<ElevateRequest> batch = batches.get(building);
+        final ElevateRequest request = requestPools[building][batch.size()];
+        request.setFloorNumber(floor);
+        request.setDirection(DIRECTIONS[direction]);
+        batch.add(request);
+        return building;
+    }
+
+    private void disconnect(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            log.debug("Failed to close gateway connection", e);
+        }
+    }
+
+    private void close() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            log.error("Failed to close binary hall call listener", e);
+        }
+    }
+}
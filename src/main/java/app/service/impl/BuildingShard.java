@@ -0,0 +1,69 @@
+package app.service.impl;
+
+import app.service.LiftRequestsDispatchingService;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * One building's lifts with their own engine, scheduler threads, dispatcher and state stream, so
+ * requests for one building never touch another building's locks or queue.
+ */
+@Slf4j
+public class BuildingShard {
+
+    @Getter
+    private final String buildingId;
+
+    @Getter
+    private final AbstractLiftEngineService liftEngineService;
+
+    @Getter
+    private final LiftRequestsDispatchingService liftRequestsDispatchingService;
+
+    @Getter
+    private final DefaultLiftRequestsQueueService liftRequestsQueueService;
+
+    @Getter
+    private final LiftStateStream liftStateStream;
+
+    private final List<Closeable> resources;
+
+    /**
+     * @param resources closed once the lifts and the dispatcher have stopped
+     */
+    public BuildingShard(String buildingId, AbstractLiftEngineService liftEngineService,
+                         LiftRequestsDispatchingService liftRequestsDispatchingService,
+                         DefaultLiftRequestsQueueService liftRequestsQueueService, LiftStateStream liftStateStream,
+                         List<Closeable> resources) {
+        this.buildingId = buildingId;
+        this.liftEngineService = liftEngineService;
+        this.liftRequestsDispatchingService = liftRequestsDispatchingService;
+        this.liftRequestsQueueService = liftRequestsQueueService;
+        this.liftStateStream = liftStateStream;
+        this.resources = resources;
+    }
+
+    void start() {
+        liftEngineService.initialize();
+        liftStateStream.start();
+        liftRequestsQueueService.initialize();
+        log.info("Building {} started with {} lifts", buildingId, liftEngineService.liftsQuantity);
+    }
+
+    void shutdown() {
+        liftStateStream.shutdown();
+        liftRequestsQueueService.shutdown();
+        liftEngineService.shutdown();
+        for (Closeable resource : resources) {
+            try {
+                resource.close();
+            } catch (IOException e) {
+                log.error("Failed to close {} of building {}", resource, buildingId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package app.service.impl;
+
+import app.domain.LiftsSnapshot;
+import app.service.LiftStateSubscriber;
+import app.service.LiftStatesService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The buildings run by this node; starts and stops their shards and serves their lift states.
+ */
+public class BuildingShards implements LiftStatesService {
+
+    private final Map<String, BuildingShard> buildings = new LinkedHashMap<>();
+
+    public BuildingShards(List<BuildingShard> shards) {
+        for (BuildingShard shard : shards) {
+            buildings.put(shard.getBuildingId(), shard);
+        }
+    }
+
+    @PostConstruct
+    public void initialize() {
+        buildings.values().forEach(BuildingShard::start);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        buildings.values().forEach(BuildingShard::shutdown);
+    }
+
+    public Collection<BuildingShard> getAll() {
+        return Collections.unmodifiableCollection(buildings.values());
+    }
+
+    @Override
+    public LiftsSnapshot getLifts(String buildingId) {
+        return get(buildingId).getLiftStateStream().snapshot();
+    }
+
+    @Override
+    public void subscribe(String buildingId, long fromSequence, LiftStateSubscriber subscriber) {
+        get(buildingId).getLiftStateStream().subscribe(fromSequence, subscriber);
+    }
+
+    @Override
+    public void unsubscribe(String buildingId, LiftStateSubscriber subscriber) {
+        get(buildingId).getLiftStateStream().unsubscribe(subscriber);
+    }
+
+    @Override
+    public CompletableFuture<Void> whenStopServed(String buildingId, String liftId, int floor) {
+        return get(buildingId).getLiftEngineService().whenStopServed(liftId, floor);
+    }
+
+    private BuildingShard get(String buildingId) {
+        if (buildingId == null) {
+            if (buildings.size() != 1) {
+                throw new IllegalArgumentException(String.format("Building id is required, there are %s buildings", buildings.size()));
+            }
+            return buildings.values().iterator().next();
+        }
+        final BuildingShard building = buildings.get(buildingId);
+        if (building == null) {
+            throw new IllegalArgumentException(String.format("invalid building %s", buildingId));
+        }
+        return building;
+    }
+}
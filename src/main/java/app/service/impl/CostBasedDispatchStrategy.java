@@ -0,0 +1,41 @@
+package app.service.impl;
+
+import app.domain.ElevateRequest;
+import app.domain.LiftRoutes;
+import app.domain.enums.DispatchRule;
+import app.service.DispatchStrategy;
+import app.service.LiftEngineService;
+import app.service.LiftMetrics;
+import lombok.AllArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Assigns each call to the lift estimated to reach the floor first, given the stops it already
+ * has to serve. Calls of a batch are added to their lift's stops as they are assigned, so the
+ * rest of the batch is costed against the routes the lifts will actually take.
+ */
+@AllArgsConstructor
+public class CostBasedDispatchStrategy implements DispatchStrategy {
+
+    private final LiftMetrics liftMetrics;
+
+    @Override
+    public List<String> selectLifts(List<ElevateRequest> requests, LiftEngineService liftEngineService) {
+        final LiftRoutes liftRoutes = liftEngineService.getLiftRoutes();
+        final List<String> liftIds = new ArrayList<>(requests.size());
+        for (ElevateRequest request : requests) {
+            final long started = System.nanoTime();
+            final int lift = liftRoutes.findFastestArrival(request.getFloorNumber());
+            if (lift < 0) {
+                liftMetrics.recordNoLiftFound();
+                throw new RuntimeException("No Lift Found to process request");
+            }
+            liftRoutes.addStop(lift, request.getFloorNumber());
+            liftMetrics.recordDispatch(DispatchRule.LOWEST_ESTIMATED_WAIT, System.nanoTime() - started);
+            liftIds.add(liftRoutes.getId(lift));
+        }
+        return liftIds;
+    }
+}
@@ -1,77 +1,92 @@
 package app.service.impl;
 
 import app.domain.ElevateRequest;
-import app.domain.Lift;
-import app.domain.enums.Direction;
+import app.domain.LiftAssignment;
+import app.service.DispatchStrategy;
 import app.service.LiftEngineService;
+import app.service.LiftMetrics;
 import app.service.LiftRequestsDispatchingService;
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 
 import java.util.*;
-import java.util.function.Function;
-import java.util.function.Predicate;
+import java.util.concurrent.TimeUnit;
 
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class DefaultLiftRequestsDispatchingService implements LiftRequestsDispatchingService {
 
     private final LiftEngineService liftEngineService;
 
-    @Override
-    public void dispatchLiftRequest(ElevateRequest request) {
-        String liftId = getMostSuitableLift(request);
-        liftEngineService.enqueueStopRequest(liftId, request.getFloorNumber());
-    }
+    private final DispatchStrategy dispatchStrategy;
 
-    private String getMostSuitableLift(ElevateRequest elevateRequest) {
-        return getFirstMatchingLift(List.of(
-                getClosestIdleFunction(elevateRequest),
-                getClosestMovingToRequesterFunction(elevateRequest),
-                getJustClosestToRequesterFunction(elevateRequest))
-        );
-    }
+    private final LiftMetrics liftMetrics;
+
+    /**
+     * Fed with every hall call for demand-predictive parking, if set.
+     */
+    @Setter
+    private HallCallDemand hallCallDemand;
 
-    private Function<Map<String, Lift>, Optional<String>> getClosestIdleFunction(ElevateRequest elevateRequest) {
-        Predicate<Lift> closestIdle = lift -> lift.getDirection() == Direction.ANY;
-        return liftState -> liftState.values().stream()
-                .filter(closestIdle)
-                .sorted(Comparator.comparing((Lift lift) -> Math.abs(lift.getCurrentFloor() - elevateRequest.getFloorNumber()))
-                        .thenComparing(Lift::getTonnage))
-                .map(Lift::getId).findAny();
+    public DefaultLiftRequestsDispatchingService(LiftEngineService liftEngineService) {
+        this(liftEngineService, new RuleBasedDispatchStrategy(LiftMetrics.NONE), LiftMetrics.NONE);
     }
 
-    private Function<Map<String, Lift>, Optional<String>> getJustClosestToRequesterFunction(ElevateRequest elevateRequest) {
-        return liftsState -> liftsState.values().stream().
-                sorted(Comparator.comparing((Lift lift) -> Math.abs(lift.getCurrentFloor() - elevateRequest.getFloorNumber()))
-                        .thenComparing(Lift::getTonnage))
-                .map(Lift::getId).findFirst();
+    @Override
+    public LiftAssignment dispatchLiftRequest(ElevateRequest request) {
+        String liftId = dispatchStrategy.selectLifts(List.of(request), liftEngineService).get(0);
+        liftMetrics.recordHallCall(liftId, request.getFloorNumber());
+        liftEngineService.enqueueStopRequest(liftId, request.getFloorNumber());
+        if (hallCallDemand != null) {
+            hallCallDemand.record(request.getFloorNumber());
+        }
+        return assignment(request, liftId);
     }
 
+    @Override
+    public List<LiftAssignment> dispatchLiftRequests(Collection<ElevateRequest> requests) {
+        final List<ElevateRequest> distinctRequests = new ArrayList<>(new LinkedHashSet<>(requests));
+        final List<String> liftIds = enqueue(distinctRequests);
 
-    private Function<Map<String, Lift>, Optional<String>> getClosestMovingToRequesterFunction(ElevateRequest elevateRequest) {
-        return liftsState -> {
-            Predicate<Lift> belowAndGoingUp = lift -> lift.getCurrentFloor() < elevateRequest.getFloorNumber() && lift.getDirection() == Direction.UP;
-            Predicate<Lift> aboveAndGoingDown = lift -> lift.getCurrentFloor() > elevateRequest.getFloorNumber() && lift.getDirection() == Direction.DOWN;
+        final Map<ElevateRequest, LiftAssignment> assignments = new HashMap<>();
+        for (int i = 0; i < distinctRequests.size(); i++) {
+            assignments.put(distinctRequests.get(i), assignment(distinctRequests.get(i), liftIds.get(i)));
+        }
+        final List<LiftAssignment> assigned = new ArrayList<>(requests.size());
+        for (ElevateRequest request : requests) {
+            assigned.add(assignments.get(request));
+        }
+        return assigned;
+    }
 
-            return (elevateRequest.getDirection() == Direction.UP)
-                    ?
-                    liftsState.values().stream()
-                            .filter(belowAndGoingUp)
-                            .sorted(Comparator.comparing(Lift::getCurrentFloor).reversed().thenComparing(Lift::getTonnage))
-                            .map(Lift::getId).findFirst()
+    @Override
+    public void enqueueLiftRequests(Collection<ElevateRequest> requests) {
+        enqueue(new ArrayList<>(new LinkedHashSet<>(requests)));
+    }
 
-                    :
-                    liftsState.values().stream()
-                            .filter(aboveAndGoingDown)
-                            .sorted(Comparator.comparing(Lift::getCurrentFloor).thenComparing(Lift::getTonnage))
-                            .map(Lift::getId).findFirst();
-        };
+    /**
+     * @return the lift each of the {@code distinctRequests} was given to
+     */
+    private List<String> enqueue(List<ElevateRequest> distinctRequests) {
+        final List<String> liftIds = dispatchStrategy.selectLifts(distinctRequests, liftEngineService);
+        final Map<String, Set<Integer>> floorsByLift = new HashMap<>();
+        for (int i = 0; i < distinctRequests.size(); i++) {
+            final String liftId = liftIds.get(i);
+            final int floor = distinctRequests.get(i).getFloorNumber();
+            liftMetrics.recordHallCall(liftId, floor);
+            floorsByLift.computeIfAbsent(liftId, id -> new LinkedHashSet<>()).add(floor);
+        }
+        floorsByLift.forEach(liftEngineService::enqueueStopRequests);
+        if (hallCallDemand != null) {
+            distinctRequests.forEach(request -> hallCallDemand.record(request.getFloorNumber()));
+        }
+        return liftIds;
     }
 
-    private String getFirstMatchingLift(Collection<Function<Map<String, Lift>, Optional<String>>> idCalculators) {
-        return idCalculators.stream()
-                .map(idCalculator -> idCalculator.apply(liftEngineService.getCurrentLiftsStateSnapshot()))
-                .filter(Optional::isPresent)
-                .findFirst()
-                .map(Optional::get).orElseThrow(() -> new RuntimeException("No Lift Found to process request"));
+    /**
+     * Estimated once the stop is enqueued, so the route already includes it.
+     */
+    private LiftAssignment assignment(ElevateRequest request, String liftId) {
+        final long etaNanos = liftEngineService.estimateArrivalNanos(liftId, request.getFloorNumber());
+        return new LiftAssignment(request.getBuildingId(), liftId, request.getFloorNumber(), TimeUnit.NANOSECONDS.toMillis(etaNanos));
     }
 }
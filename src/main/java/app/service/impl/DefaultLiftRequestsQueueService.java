@@ -0,0 +1,220 @@
+package app.service.impl;
+
+import app.config.LiftsConfiguration;
+import app.domain.DispatchQueueStats;
+import app.domain.ElevateRequest;
+import app.domain.LiftAssignment;
+import app.service.LiftRequestsDispatchingService;
+import app.service.LiftRequestsQueueService;
+import com.jcabi.log.VerboseRunnable;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded hand-off between request threads and a single dispatcher stage, so callers never wait
+ * on the lift locks; the dispatcher drains whatever is queued as one batch. Requests are checked
+ * before they are queued, so one bad call can't fail the batch it would have been drained with.
+ */
+@Slf4j
+public class DefaultLiftRequestsQueueService implements LiftRequestsQueueService {
+
+    @AllArgsConstructor
+    private static final class QueuedRequest {
+
+        private final ElevateRequest request;
+
+        private final long enqueuedNanos;
+
+        /**
+         * Null when nobody waits for the assignment.
+         */
+        private final CompletableFuture<LiftAssignment> assignment;
+    }
+
+    private final LiftRequestsDispatchingService liftRequestsDispatchingService;
+
+    private final int floorsQuantity;
+
+    private final int batchSize;
+
+    private final BlockingQueue<QueuedRequest> queue;
+
+    private final LongAdder accepted = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final AtomicLong dispatched = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    private volatile long rateWindowStartNanos = System.nanoTime();
+
+    private volatile long rateWindowStartCount;
+
+    private volatile double drainRatePerSecond;
+
+    private ExecutorService executor;
+
+    public DefaultLiftRequestsQueueService(LiftRequestsDispatchingService liftRequestsDispatchingService, int floorsQuantity,
+                                           LiftsConfiguration liftsConfiguration) {
+        this.liftRequestsDispatchingService = liftRequestsDispatchingService;
+        this.floorsQuantity = floorsQuantity;
+        this.batchSize = liftsConfiguration.getDispatchBatchSize();
+        this.queue = new ArrayBlockingQueue<>(liftsConfiguration.getDispatchQueueCapacity());
+    }
+
+    public void initialize() {
+        executor = Executors.newSingleThreadExecutor();
+        executor.submit(new VerboseRunnable(this::drain));
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public CompletableFuture<LiftAssignment> submit(ElevateRequest request) {
+        final CompletableFuture<LiftAssignment> assignment = new CompletableFuture<>();
+        try {
+            validate(request);
+        } catch (IllegalArgumentException e) {
+            assignment.completeExceptionally(e);
+            return assignment;
+        }
+        if (!offer(new QueuedRequest(request, System.nanoTime(), assignment))) {
+            assignment.completeExceptionally(new RejectedExecutionException("Lift requests queue is full"));
+        }
+        return assignment;
+    }
+
+    @Override
+    public void validateAll(Collection<ElevateRequest> requests) {
+        requests.forEach(this::validate);
+    }
+
+    private void validate(ElevateRequest request) {
+        if (request.getFloorNumber() < 0 || request.getFloorNumber() >= floorsQuantity) {
+            throw new IllegalArgumentException(String.format("invalid floor %s, the building has %s floors",
+                    request.getFloorNumber(), floorsQuantity));
+        }
+        if (request.getDirection() == null) {
+            throw new IllegalArgumentException(String.format("direction is required for floor %s", request.getFloorNumber()));
+        }
+    }
+
+    private boolean offer(QueuedRequest queuedRequest) {
+        if (queue.offer(queuedRequest)) {
+            accepted.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Takes none of the requests when any of them is invalid.
+     */
+    @Override
+    public int enqueueAll(Collection<ElevateRequest> requests) {
+        validateAll(requests);
+        int acceptedRequests = 0;
+        for (ElevateRequest request : requests) {
+            if (!offer(new QueuedRequest(request, System.nanoTime(), null))) {
+                rejected.add(requests.size() - acceptedRequests - 1);
+                break;
+            }
+            acceptedRequests++;
+        }
+        return acceptedRequests;
+    }
+
+    @Override
+    public DispatchQueueStats getStats() {
+        final long dispatchedCount = dispatched.get();
+        return DispatchQueueStats.builder()
+                .queueDepth(queue.size())
+                .remainingCapacity(queue.remainingCapacity())
+                .acceptedCount(accepted.sum())
+                .rejectedCount(rejected.sum())
+                .dispatchedCount(dispatchedCount)
+                .failedCount(failed.get())
+                .drainRatePerSecond(drainRatePerSecond)
+                .averageLatencyMicros((dispatchedCount == 0) ? 0 : TimeUnit.NANOSECONDS.toMicros(totalLatencyNanos.get() / dispatchedCount))
+                .maxLatencyMicros(TimeUnit.NANOSECONDS.toMicros(maxLatencyNanos.get()))
+                .build();
+    }
+
+    private void drain() {
+        final List<QueuedRequest> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                final QueuedRequest head = queue.poll(1, TimeUnit.SECONDS);
+                if (head != null) {
+                    batch.add(head);
+                    queue.drainTo(batch, batchSize - 1);
+                    dispatch(batch);
+                    batch.clear();
+                }
+                updateDrainRate();
+            }
+        } catch (InterruptedException e) {
+            log.debug("Lift requests dispatcher stopped");
+        }
+    }
+
+    private void dispatch(List<QueuedRequest> batch) {
+        final List<LiftAssignment> assignments;
+        try {
+            assignments = liftRequestsDispatchingService.dispatchLiftRequests(batch.stream().map(queued -> queued.request).collect(Collectors.toList()));
+        } catch (RuntimeException e) {
+            failed.addAndGet(batch.size());
+            log.error("Failed to dispatch {} lift requests", batch.size(), e);
+            for (QueuedRequest queued : batch) {
+                if (queued.assignment != null) {
+                    queued.assignment.completeExceptionally(e);
+                }
+            }
+            return;
+        }
+        final long now = System.nanoTime();
+        for (int i = 0; i < batch.size(); i++) {
+            final QueuedRequest queued = batch.get(i);
+            final long latency = now - queued.enqueuedNanos;
+            totalLatencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            if (queued.assignment != null) {
+                queued.assignment.complete(assignments.get(i));
+            }
+        }
+        dispatched.addAndGet(batch.size());
+    }
+
+    private void updateDrainRate() {
+        final long now = System.nanoTime();
+        final long elapsed = now - rateWindowStartNanos;
+        if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+            final long dispatchedCount = dispatched.get();
+            drainRatePerSecond = (dispatchedCount - rateWindowStartCount) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+            rateWindowStartCount = dispatchedCount;
+            rateWindowStartNanos = now;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package app.service.impl;
+
+import app.domain.FloorOccupancy;
+import app.service.ParkingStrategy;
+
+/**
+ * Parks the lift where it cuts the expected distance to the next hall calls the most, given the
+ * demand predicted for the time of day and the floors other idle lifts already cover, so idle
+ * lifts spread over the busiest zones. Without any demand recorded yet it falls back to
+ * {@link GroundFloorParkingStrategy}.
+ * <p>
+ * Each decision is quadratic in the number of floors, which is fine as it is only made once per
+ * lift going idle.
+ */
+public class DemandParkingStrategy implements ParkingStrategy {
+
+    private final HallCallDemand hallCallDemand;
+
+    private final ParkingStrategy fallback = new GroundFloorParkingStrategy();
+
+    public DemandParkingStrategy(HallCallDemand hallCallDemand) {
+        this.hallCallDemand = hallCallDemand;
+    }
+
+    @Override
+    public int selectParkingFloor(int lift, int currentFloor, FloorOccupancy floorOccupancy) {
+        final double[] demand = hallCallDemand.predict();
+        final int floorsQuantity = demand.length;
+        if (isEmpty(demand)) {
+            return fallback.selectParkingFloor(lift, currentFloor, floorOccupancy);
+        }
+
+        final int[] covered = distancesToOtherIdleLifts(lift, floorOccupancy);
+        int bestFloor = currentFloor;
+        double bestCost = cost(currentFloor, demand, covered);
+        for (int floor = 0; floor < floorsQuantity; floor++) {
+            final double cost = cost(floor, demand, covered);
+            if (cost < bestCost
+                    || (cost == bestCost && Math.abs(floor - currentFloor) < Math.abs(bestFloor - currentFloor))) {
+                bestFloor = floor;
+                bestCost = cost;
+            }
+        }
+        return bestFloor;
+    }
+
+    /**
+     * @return floors from each floor to the closest lift idle there other than {@code lift}, the floors quantity if none
+     */
+    private static int[] distancesToOtherIdleLifts(int lift, FloorOccupancy floorOccupancy) {
+        final int floorsQuantity = floorOccupancy.getFloorsQuantity();
+        final int own = floorOccupancy.getParkingFloor(lift);
+        final int[] distances = new int[floorsQuantity];
+        int last = -1;
+        for (int floor = 0; floor < floorsQuantity; floor++) {
+            if (floorOccupancy.idleLiftsAt(floor) > ((floor == own) ? 1 : 0)) {
+                last = floor;
+            }
+            distances[floor] = (last < 0) ? floorsQuantity : floor - last;
+        }
+        last = -1;
+        for (int floor = floorsQuantity - 1; floor >= 0; floor--) {
+            if (floorOccupancy.idleLiftsAt(floor) > ((floor == own) ? 1 : 0)) {
+                last = floor;
+            }
+            if (last >= 0) {
+                distances[floor] = Math.min(distances[floor], last - floor);
+            }
+        }
+        return distances;
+    }
+
+    private static double cost(int parkingFloor, double[] demand, int[] covered) {
+        double cost = 0;
+        for (int floor = 0; floor < demand.length; floor++) {
+            cost += demand[floor] * Math.min(covered[floor], Math.abs(floor - parkingFloor));
+        }
+        return cost;
+    }
+
+    private static boolean isEmpty(double[] demand) {
+        for (double calls : demand) {
+            if (calls > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
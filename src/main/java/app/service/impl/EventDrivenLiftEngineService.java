@@ -0,0 +1,152 @@
+package app.service.impl;
+
+import app.config.LiftsConfiguration;
+import app.domain.LiftButtons;
+import app.domain.enums.Direction;
+import app.service.LiftClock;
+import app.service.SimulationTimeline;
+import com.jcabi.log.VerboseRunnable;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Drives every lift from time-ordered events on a few scheduler threads instead of parking
+ * a thread per lift; a lift with no buttons pressed has no pending events at all.
+ */
+@Slf4j
+public class EventDrivenLiftEngineService extends AbstractLiftEngineService implements SimulationTimeline {
+
+    private ExecutorService executor;
+
+    /**
+     * Scheduler of each lift, by lift index.
+     */
+    private LiftEventScheduler[] schedulers;
+
+    private LiftEventScheduler actionScheduler;
+
+    /**
+     * Event of each lift, by lift index.
+     */
+    private LiftEvent[] liftEvents;
+
+    public EventDrivenLiftEngineService(LiftsConfiguration liftsConfiguration, LiftClock liftClock) {
+        super(liftsConfiguration, liftClock);
+        if (liftClock.isVirtual() && liftsConfiguration.getSchedulerThreads() > 1) {
+            throw new RuntimeException("A virtual clock needs a single timeline, set lift.scheduler-threads=1");
+        }
+    }
+
+    @Override
+    protected void startLifts(int liftsCount) {
+        final int threads = Math.max(1, Math.min(liftsConfiguration.getSchedulerThreads(), liftsCount));
+        final List<LiftEventScheduler> pool = IntStream.range(0, threads)
+                .mapToObj(i -> new LiftEventScheduler("lift-scheduler-" + buildingId + "-" + i, liftClock, this::handle))
+                .collect(Collectors.toList());
+        schedulers = new LiftEventScheduler[liftsCount];
+        liftEvents = new LiftEvent[liftsCount];
+        for (int lift = 0; lift < liftsCount; lift++) {
+            schedulers[lift] = pool.get(lift % threads);
+            liftEvents[lift] = new LiftEvent(lift);
+        }
+        actionScheduler = pool.get(0);
+
+        executor = Executors.newFixedThreadPool(threads);
+        pool.forEach(scheduler -> executor.submit(new VerboseRunnable(scheduler)));
+        for (int lift = 0; lift < liftsCount; lift++) {
+            if (!isParked(lift)) {
+                scheduleDeparture(lift, 0);
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public LiftClock getLiftClock() {
+        return liftClock;
+    }
+
+    @Override
+    public void scheduleAt(long nanoTime, Runnable action) {
+        actionScheduler.scheduleAt(nanoTime, action);
+    }
+
+    @Override
+    protected void notifyButtonIsPressed(int lift) {
+        log.debug("Letting Lift {} know some button is pressed", getId(lift));
+        scheduleDeparture(lift, 0);
+    }
+
+    private void handle(LiftEvent event) {
+        if (event.getType() == LiftEvent.Type.ACTION) {
+            runAction(event.getAction());
+            return;
+        }
+        final int lift = event.getLift();
+        acquireLockOnLift(lift);
+        try {
+            switch (event.getType()) {
+                case DEPARTURE:
+                    depart(lift);
+                    break;
+                case FLOOR_ARRIVAL:
+                    arriveAtNextFloor(lift, event.getDirection(), event.isFinalIterationToRequester());
+                    drainPendingStops(lift);
+                    finishIteration(lift);
+                    scheduleDeparture(lift, 0);
+                    break;
+            }
+        } finally {
+            releaseLockOnLift(lift);
+        }
+    }
+
+    private void runAction(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            log.error("Scheduled action failed", e);
+        }
+    }
+
+    private void depart(int lift) {
+        drainPendingStops(lift);
+        if (getButtons(lift).isEveryButtonTurnedOff()) {
+            park(lift);
+            return;
+        }
+
+        final int nextFloor = nextRequestedFloor(lift);
+        if (nextFloor != LiftButtons.NO_FLOOR) {
+            final Direction direction = (nextFloor > getCurrentFloor(lift)) ? Direction.UP : Direction.DOWN;
+            final boolean finalIterationToRequester = isFinalIterationToRequester(getCurrentFloor(lift), nextFloor);
+            startMoving(lift, direction);
+            schedulers[lift].schedule(liftEvents[lift], LiftEvent.Type.FLOOR_ARRIVAL, direction, finalIterationToRequester,
+                    getTravelNanosPerFloor(lift));
+        } else {
+            finishIteration(lift);
+            scheduleDeparture(lift, 0);
+        }
+    }
+
+    private void park(int lift) {
+        log.debug("Lift {} started waiting for some buttons pressed", getId(lift));
+        stopAndTurnLightsOff(lift);
+        if (!parkLift(lift)) {
+            scheduleDeparture(lift, 0);
+        }
+    }
+
+    private void scheduleDeparture(int lift, long delayNanos) {
+        schedulers[lift].schedule(liftEvents[lift], LiftEvent.Type.DEPARTURE, null, false, delayNanos);
+    }
+}
@@ -0,0 +1,15 @@
+package app.service.impl;
+
+import app.domain.FloorOccupancy;
+import app.service.ParkingStrategy;
+
+/**
+ * Sends the lift down to the ground floor unless some lift is already there.
+ */
+public class GroundFloorParkingStrategy implements ParkingStrategy {
+
+    @Override
+    public int selectParkingFloor(int lift, int currentFloor, FloorOccupancy floorOccupancy) {
+        return floorOccupancy.anyLiftAt(0) ? currentFloor : 0;
+    }
+}
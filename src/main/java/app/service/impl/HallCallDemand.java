@@ -0,0 +1,74 @@
+package app.service.impl;
+
+import app.service.LiftClock;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hall calls per floor in time-of-day buckets of {@link LiftClock} time. The counts of a bucket
+ * halve every day it comes round again, so the prediction follows a building's changing habits.
+ */
+public class HallCallDemand {
+
+    private static final long DAY_NANOS = TimeUnit.DAYS.toNanos(1);
+
+    private final LiftClock liftClock;
+
+    private final long startTimeOfDayNanos;
+
+    private final long bucketNanos;
+
+    private final int floorsQuantity;
+
+    private final double[][] calls;
+
+    private final long[] bucketDays;
+
+    /**
+     * @param startTimeOfDayNanos time of day when the lift clock reads 0
+     */
+    public HallCallDemand(LiftClock liftClock, long startTimeOfDayNanos, Duration bucket, int floorsQuantity) {
+        if (bucket.isNegative() || bucket.isZero() || bucket.toNanos() > DAY_NANOS) {
+            throw new RuntimeException(String.format("invalid demand bucket %s", bucket));
+        }
+        this.liftClock = liftClock;
+        this.startTimeOfDayNanos = startTimeOfDayNanos;
+        this.bucketNanos = bucket.toNanos();
+        this.floorsQuantity = floorsQuantity;
+        final int buckets = (int) ((DAY_NANOS + bucketNanos - 1) / bucketNanos);
+        this.calls = new double[buckets][floorsQuantity];
+        this.bucketDays = new long[buckets];
+    }
+
+    public synchronized void record(int floor) {
+        final long now = startTimeOfDayNanos + liftClock.nanoTime();
+        final int bucket = (int) ((now % DAY_NANOS) / bucketNanos);
+        final long day = now / DAY_NANOS;
+        if (bucketDays[bucket] < day) {
+            final double decay = Math.pow(0.5, day - bucketDays[bucket]);
+            for (int f = 0; f < floorsQuantity; f++) {
+                calls[bucket][f] *= decay;
+            }
+            bucketDays[bucket] = day;
+        }
+        calls[bucket][floor]++;
+    }
+
+    /**
+     * @return calls expected at each floor over the current and the next bucket, in no particular unit
+     */
+    public synchronized double[] predict() {
+        final long now = startTimeOfDayNanos + liftClock.nanoTime();
+        final int bucket = (int) ((now % DAY_NANOS) / bucketNanos);
+        final long day = now / DAY_NANOS;
+        final int next = (bucket + 1) % calls.length;
+        final double currentDecay = Math.pow(0.5, Math.max(0, day - bucketDays[bucket]));
+        final double nextDecay = Math.pow(0.5, Math.max(0, ((next == 0) ? day + 1 : day) - bucketDays[next]));
+        final double[] demand = new double[floorsQuantity];
+        for (int f = 0; f < floorsQuantity; f++) {
+            demand[f] = calls[bucket][f] * currentDecay + calls[next][f] * nextDecay;
+        }
+        return demand;
+    }
+}
@@ -0,0 +1,85 @@
+package app.service.impl;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of non-negative values with four buckets per power of two, so any reported
+ * percentile is within 25% of the recorded value. Recording only bumps striped adders, it never
+ * allocates or takes a lock; counts are kept since start.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final LongAdder[] buckets = new LongAdder[(Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder total = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long value) {
+        final long positive = Math.max(0, value);
+        buckets[bucketOf(positive)].increment();
+        count.increment();
+        total.add(positive);
+        max.accumulate(positive);
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    long getTotal() {
+        return total.sum();
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return upper bound of the bucket holding the {@code quantile} (0..1) of recorded values
+     */
+    long getValueAtQuantile(double quantile) {
+        final long rank = (long) Math.ceil(quantile * count.sum());
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank && seen > 0) {
+                return Math.min(lowerBoundOf(i + 1) - 1, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long lowerBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        if (exponent >= Long.SIZE - 1) {
+            return Long.MAX_VALUE;
+        }
+        return (1L << exponent) + ((long) (bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS));
+    }
+}
@@ -0,0 +1,76 @@
+package app.service.impl;
+
+import app.domain.enums.Direction;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A lift has at most one event pending, so each lift keeps one event that is scheduled again
+ * once taken, rather than a new one per departure or floor arrival.
+ */
+@Getter
+@ToString
+final class LiftEvent implements Comparable<LiftEvent> {
+
+    enum Type {
+        DEPARTURE,
+        FLOOR_ARRIVAL,
+        ACTION
+    }
+
+    /**
+     * Index of the lift, unused by actions.
+     */
+    private final int lift;
+
+    private final Runnable action;
+
+    private Type type;
+
+    private Direction direction;
+
+    private boolean finalIterationToRequester;
+
+    private long dueNanos;
+
+    private long sequence;
+
+    /**
+     * Guarded by the lock of the scheduler queueing the event.
+     */
+    private boolean queued;
+
+    LiftEvent(int lift) {
+        this.lift = lift;
+        this.action = null;
+    }
+
+    LiftEvent(Runnable action, long dueNanos, long sequence) {
+        this.lift = -1;
+        this.action = action;
+        this.type = Type.ACTION;
+        this.dueNanos = dueNanos;
+        this.sequence = sequence;
+    }
+
+    void reschedule(Type type, Direction direction, boolean finalIterationToRequester, long dueNanos, long sequence) {
+        if (queued) {
+            throw new RuntimeException(String.format("Lift %s already has a %s event pending", lift, this.type));
+        }
+        this.type = type;
+        this.direction = direction;
+        this.finalIterationToRequester = finalIterationToRequester;
+        this.dueNanos = dueNanos;
+        this.sequence = sequence;
+    }
+
+    void setQueued(boolean queued) {
+        this.queued = queued;
+    }
+
+    @Override
+    public int compareTo(LiftEvent that) {
+        final int byTime = Long.compare(dueNanos, that.dueNanos);
+        return (byTime != 0) ? byTime : Long.compare(sequence, that.sequence);
+    }
+}
@@ -0,0 +1,112 @@
+package app.service.impl;
+
+import app.domain.enums.Direction;
+import app.service.LiftClock;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Time-ordered queue of lift events drained by a single thread; events of one lift are always
+ * handled by the same scheduler, so they never run concurrently.
+ */
+@Slf4j
+final class LiftEventScheduler implements Runnable {
+
+    private final String name;
+
+    private final LiftClock liftClock;
+
+    private final Consumer<LiftEvent> handler;
+
+    private final PriorityQueue<LiftEvent> events = new PriorityQueue<>();
+
+    private final Lock lock = new ReentrantLock();
+
+    private final Condition eventAvailable = lock.newCondition();
+
+    private long sequence;
+
+    LiftEventScheduler(String name, LiftClock liftClock, Consumer<LiftEvent> handler) {
+        this.name = name;
+        this.liftClock = liftClock;
+        this.handler = handler;
+    }
+
+    /**
+     * Queues the lift's own event again, once it has been taken.
+     */
+    void schedule(LiftEvent event, LiftEvent.Type type, Direction direction, boolean finalIterationToRequester, long delayNanos) {
+        lock.lock();
+        try {
+            event.reschedule(type, direction, finalIterationToRequester, liftClock.nanoTime() + delayNanos, sequence++);
+            offer(event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void scheduleAt(long nanoTime, Runnable action) {
+        lock.lock();
+        try {
+            offer(new LiftEvent(action, nanoTime, sequence++));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void offer(LiftEvent event) {
+        event.setQueued(true);
+        events.offer(event);
+        if (events.peek() == event) {
+            eventAvailable.signal();
+        }
+    }
+
+    private LiftEvent take() {
+        final LiftEvent event = events.poll();
+        event.setQueued(false);
+        return event;
+    }
+
+    @Override
+    public void run() {
+        log.debug("Scheduler {} started", name);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                handler.accept(takeDueEvent());
+            }
+        } catch (InterruptedException e) {
+            // stopping
+        }
+        log.debug("Scheduler {} stopped", name);
+    }
+
+    private LiftEvent takeDueEvent() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                final LiftEvent head = events.peek();
+                if (head == null) {
+                    eventAvailable.await();
+                } else {
+                    final long delay = head.getDueNanos() - liftClock.nanoTime();
+                    if (delay <= 0) {
+                        return take();
+                    }
+                    if (liftClock.isVirtual()) {
+                        liftClock.advanceTo(head.getDueNanos());
+                        return take();
+                    }
+                    eventAvailable.awaitNanos(liftClock.toWallNanos(delay));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package app.service.impl;
+
+import app.domain.enums.Direction;
+
+/**
+ * Receives every persistent change of the {@link LiftStateStore} right after it is applied.
+ */
+interface LiftStateLog {
+
+    LiftStateLog NONE = new LiftStateLog() {
+    };
+
+    default void pendingStop(int lift, int floor) {
+    }
+
+    /**
+     * The pending stop at {@code floor} was moved into the lift's buttons.
+     */
+    default void pendingStopDrained(int lift, int floor) {
+    }
+
+    default void buttonOn(int lift, int floor) {
+    }
+
+    default void buttonOff(int lift, int floor) {
+    }
+
+    default void floor(int lift, int floor) {
+    }
+
+    default void direction(int lift, Direction direction) {
+    }
+}
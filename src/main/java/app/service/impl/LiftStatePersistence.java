@@ -0,0 +1,365 @@
+package app.service.impl;
+
+import app.domain.Lift;
+import app.domain.LiftButtons;
+import app.domain.enums.Direction;
+import app.domain.enums.LiftState;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps lift state across restarts. Every change goes to a {@link WriteAheadLog}, and every
+ * {@code snapshotInterval} the log is rolled over and a compact snapshot is written through a
+ * memory-mapped file, after which older logs and snapshots are deleted. Recovery loads the
+ * newest snapshot and replays the logs written after it.
+ * <p>
+ * Changes of the last uncommitted batch are lost in a crash. Replay errs on the side of keeping
+ * stops: one served just before the crash may be served again, but a registered one isn't dropped.
+ * Car load isn't kept either: recovered lifts come back empty, and so none is indexed as full.
+ */
+@Slf4j
+public class LiftStatePersistence implements Closeable {
+
+    private static final int MAGIC = 0x4C534E50;
+
+    private static final int VERSION = 1;
+
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d+)\\.bin");
+
+    private static final Pattern LOG = Pattern.compile("wal-(\\d+)\\.log");
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Path directory;
+
+    private final Duration snapshotInterval;
+
+    private ScheduledExecutorService snapshotter;
+
+    private WriteAheadLog writeAheadLog;
+
+    private LiftStateStore liftsState;
+
+    public LiftStatePersistence(Path directory, Duration snapshotInterval) {
+        this.directory = directory;
+        this.snapshotInterval = snapshotInterval;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Can't create lift state directory %s", directory), e);
+        }
+    }
+
+    /**
+     * @return lifts of {@code buildingId} as of the last committed change, stopped where they were,
+     * or empty when nothing was persisted yet
+     */
+    Optional<List<Lift>> recover(String buildingId, int liftsQuantity, int floorsQuantity, long travelNanosPerFloor) {
+        final long started = System.nanoTime();
+        try {
+            final Optional<Long> snapshotSequence = sequences(SNAPSHOT).stream().max(Long::compare);
+            if (snapshotSequence.isEmpty()) {
+                return Optional.empty();
+            }
+            final RecoveredState state = readSnapshot(snapshotFile(snapshotSequence.get()));
+            if (state.ids.length != liftsQuantity || state.floorsQuantity != floorsQuantity) {
+                throw new RuntimeException(String.format("Lift state in %s is for %s lifts and %s floors, configured %s and %s",
+                        directory, state.ids.length, state.floorsQuantity, liftsQuantity, floorsQuantity));
+            }
+            long changes = 0;
+            for (long sequence : sequences(LOG)) {
+                if (sequence >= snapshotSequence.get()) {
+                    changes += replay(WriteAheadLog.fileOf(directory, sequence), state);
+                }
+            }
+            final List<Lift> lifts = state.toLifts(buildingId, travelNanosPerFloor);
+            log.info("Recovered {} lifts from {} and {} logged changes in {} ms", lifts.size(),
+                    snapshotFile(snapshotSequence.get()).getFileName(), changes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            return Optional.of(lifts);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Can't recover lift state from %s", directory), e);
+        }
+    }
+
+    /**
+     * Starts logging changes of {@code liftsState}; called before the lifts start moving.
+     */
+    void start(LiftStateStore liftsState) {
+        this.liftsState = liftsState;
+        try {
+            final long sequence = Stream.concat(sequences(SNAPSHOT).stream(), sequences(LOG).stream())
+                    .max(Long::compare).orElse(0L) + 1;
+            writeAheadLog = new WriteAheadLog(directory, sequence);
+            liftsState.setStateLog(writeAheadLog);
+            writeSnapshot(sequence);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Can't persist lift state to %s", directory), e);
+        }
+        snapshotter = Executors.newSingleThreadScheduledExecutor();
+        snapshotter.scheduleWithFixedDelay(this::takeSnapshot, snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (snapshotter != null) {
+            // an interrupt would close the log file under a roll-over, so let a running snapshot finish
+            snapshotter.shutdown();
+            try {
+                snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+        }
+    }
+
+    private void takeSnapshot() {
+        try {
+            writeSnapshot(writeAheadLog.roll());
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to snapshot lift state", e);
+        }
+    }
+
+    /**
+     * Stores the current state as of log file {@code sequence}, then deletes what it supersedes.
+     * Lifts keep moving meanwhile; their changes are in that log file and replay over the snapshot.
+     */
+    private void writeSnapshot(long sequence) throws IOException {
+        final long started = System.nanoTime();
+        final int size = liftsState.size();
+        final int words = (size == 0) ? 0 : liftsState.getButtons(0).getWordsQuantity();
+        final int floorsQuantity = (size == 0) ? 0 : liftsState.getButtons(0).getFloorQuantity();
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream header = new DataOutputStream(bytes);
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        header.writeLong(sequence);
+        header.writeInt(size);
+        header.writeInt(floorsQuantity);
+        header.writeInt(words);
+        for (int i = 0; i < size; i++) {
+            header.writeUTF(liftsState.getId(i));
+        }
+
+        final Path temporary = directory.resolve("snapshot.tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    bytes.size() + (long) size * (3 * Integer.BYTES + 2 * words * Long.BYTES) + Integer.BYTES);
+            buffer.put(bytes.toByteArray());
+            final long[] pendingStops = new long[words];
+            for (int i = 0; i < size; i++) {
+                // pending stops first: one drained in between then shows up twice rather than not at all
+                for (int w = 0; w < words; w++) {
+                    pendingStops[w] = liftsState.getPendingStops(i, w);
+                }
+                final Lift lift = liftsState.snapshot(i, false);
+                buffer.putInt(lift.getTonnage());
+                buffer.putInt(lift.getCurrentFloor());
+                buffer.putInt(lift.getDirection().ordinal());
+                for (int w = 0; w < words; w++) {
+                    buffer.putLong(lift.getButtons().getWord(w));
+                }
+                for (int w = 0; w < words; w++) {
+                    buffer.putLong(pendingStops[w]);
+                }
+            }
+            final CRC32 checksum = new CRC32();
+            checksum.update((ByteBuffer) buffer.duplicate().flip());
+            buffer.putInt((int) checksum.getValue());
+            buffer.force();
+        }
+        Files.move(temporary, snapshotFile(sequence), StandardCopyOption.ATOMIC_MOVE);
+
+        for (long older : sequences(SNAPSHOT)) {
+            if (older < sequence) {
+                Files.deleteIfExists(snapshotFile(older));
+            }
+        }
+        for (long older : sequences(LOG)) {
+            if (older < sequence) {
+                Files.deleteIfExists(WriteAheadLog.fileOf(directory, older));
+            }
+        }
+        log.debug("Lift state snapshot {} written in {} us", sequence, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started));
+    }
+
+    private RecoveredState readSnapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final CRC32 checksum = new CRC32();
+            checksum.update((ByteBuffer) buffer.duplicate().limit(buffer.capacity() - Integer.BYTES));
+            if (buffer.getInt(buffer.capacity() - Integer.BYTES) != (int) checksum.getValue()
+                    || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new RuntimeException(String.format("Corrupt lift state snapshot %s", file));
+            }
+            buffer.getLong();
+            final String[] ids = new String[buffer.getInt()];
+            final RecoveredState state = new RecoveredState(ids, buffer.getInt());
+            final int words = buffer.getInt();
+            for (int i = 0; i < ids.length; i++) {
+                final byte[] id = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(id);
+                ids[i] = new String(id, StandardCharsets.UTF_8);
+            }
+            for (int i = 0; i < ids.length; i++) {
+                state.tonnage[i] = buffer.getInt();
+                state.currentFloor[i] = buffer.getInt();
+                state.direction[i] = DIRECTIONS[buffer.getInt()];
+                for (int w = 0; w < words; w++) {
+                    state.buttons[i].turnOnButtonsInWord(w, buffer.getLong());
+                }
+                for (int w = 0; w < words; w++) {
+                    state.pendingStops[i].turnOnButtonsInWord(w, buffer.getLong());
+                }
+            }
+            return state;
+        }
+    }
+
+    /**
+     * @return number of changes applied; a record torn by a crash at the end is ignored
+     */
+    private long replay(Path file, RecoveredState state) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final long records = channel.size() / WriteAheadLog.RECORD_SIZE;
+            for (long r = 0; r < records; r++) {
+                final int type = buffer.getInt();
+                final int lift = buffer.getInt();
+                final int value = buffer.getInt();
+                if (lift < 0 || lift >= state.ids.length || !state.apply(type, lift, value)) {
+                    throw new RuntimeException(String.format("Corrupt lift state log %s at record %s", file, r));
+                }
+            }
+            return records;
+        }
+    }
+
+    private List<Long> sequences(Pattern pattern) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> pattern.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path snapshotFile(long sequence) {
+        return directory.resolve(String.format("snapshot-%019d.bin", sequence));
+    }
+
+    private static final class RecoveredState {
+
+        private final String[] ids;
+
+        private final int floorsQuantity;
+
+        private final int[] tonnage;
+
+        private final int[] currentFloor;
+
+        private final Direction[] direction;
+
+        private final LiftButtons[] buttons;
+
+        private final LiftButtons[] pendingStops;
+
+        private RecoveredState(String[] ids, int floorsQuantity) {
+            this.ids = ids;
+            this.floorsQuantity = floorsQuantity;
+            this.tonnage = new int[ids.length];
+            this.currentFloor = new int[ids.length];
+            this.direction = new Direction[ids.length];
+            this.buttons = new LiftButtons[ids.length];
+            this.pendingStops = new LiftButtons[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                buttons[i] = new LiftButtons(floorsQuantity);
+                pendingStops[i] = new LiftButtons(floorsQuantity);
+            }
+        }
+
+        /**
+         * @return false for a record that can't be a valid change
+         */
+        private boolean apply(int type, int lift, int value) {
+            if (type != WriteAheadLog.DIRECTION && (value < 0 || value >= floorsQuantity)) {
+                return false;
+            }
+            switch (type) {
+                case WriteAheadLog.PENDING_STOP:
+                    pendingStops[lift].turnOnButtonAtFloor(value);
+                    return true;
+                case WriteAheadLog.PENDING_STOP_DRAINED:
+                    pendingStops[lift].turnOffButtonAtFloor(value);
+                    buttons[lift].turnOnButtonAtFloor(value);
+                    return true;
+                case WriteAheadLog.BUTTON_ON:
+                    buttons[lift].turnOnButtonAtFloor(value);
+                    return true;
+                case WriteAheadLog.BUTTON_OFF:
+                    buttons[lift].turnOffButtonAtFloor(value);
+                    return true;
+                case WriteAheadLog.FLOOR:
+                    currentFloor[lift] = value;
+                    return true;
+                case WriteAheadLog.DIRECTION:
+                    if (value < 0 || value >= DIRECTIONS.length) {
+                        return false;
+                    }
+                    direction[lift] = DIRECTIONS[value];
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private List<Lift> toLifts(String buildingId, long travelNanosPerFloor) {
+            return IntStream.range(0, ids.length)
+                    .mapToObj(i -> {
+                        for (int w = 0; w < pendingStops[i].getWordsQuantity(); w++) {
+                            buttons[i].turnOnButtonsInWord(w, pendingStops[i].getWord(w));
+                        }
+                        return Lift.builder()
+                                .buildingId(buildingId)
+                                .id(ids[i])
+                                .travelNanosPerFloor(travelNanosPerFloor)
+                                .tonnage(tonnage[i])
+                                .currentFloor(currentFloor[i])
+                                .direction(direction[i])
+                                .buttons(buttons[i])
+                                .state(LiftState.STOPPED)
+                                .build();
+                    })
+                    .collect(Collectors.toList());
+        }
+    }
+}
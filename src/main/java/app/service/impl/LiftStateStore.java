@@ -0,0 +1,429 @@
+package app.service.impl;
+
+import app.domain.FloorOccupancy;
+import app.domain.Lift;
+import app.domain.LiftButtons;
+import app.domain.LiftFloorIndex;
+import app.domain.LiftRoutes;
+import app.domain.LiftStateFeed;
+import app.domain.enums.Direction;
+import app.domain.enums.LiftState;
+
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Struct-of-arrays lift state mutated in place. Writers must hold the lift's lock; every mutation
+ * is bracketed by a per-lift sequence number so lock-free readers can take consistent snapshots,
+ * and floor or direction changes are mirrored into the {@link LiftFloorIndex} used for dispatching
+ * and the {@link FloorOccupancy} used for parking.
+ * <p>
+ * Passenger load is tracked against each car's capacity; a car loaded to its bypass threshold is
+ * marked full in the floor index and routes, so hall calls go to other lifts while there are any.
+ * <p>
+ * New stops are the exception: they are OR-ed lock-free into a per-lift pending mask that the lift
+ * moves into its buttons under its lock, so registering a stop never waits for a moving lift.
+ * <p>
+ * Every visible change is also appended to a {@link LiftStateFeed} once applied, so a snapshot
+ * plus the deltas from the feed sequence read before it always adds up to the current state.
+ */
+final class LiftStateStore {
+
+    private final String buildingId;
+
+    private final String[] ids;
+
+    private final Map<String, Integer> indexes;
+
+    private final long[] travelNanosPerFloor;
+
+    private final int[] tonnage;
+
+    private final int[] currentFloor;
+
+    private final boolean[] lightOn;
+
+    private final LiftState[] state;
+
+    private final Direction[] direction;
+
+    private final LiftButtons[] buttons;
+
+    private final int[] load;
+
+    private final int[] passengerCapacity;
+
+    /**
+     * Load from which the car counts as full.
+     */
+    private final int[] bypassLoad;
+
+    private final boolean[] full;
+
+    private final AtomicLongArray versions;
+
+    private final int pendingWordsPerLift;
+
+    private final AtomicLongArray pendingStops;
+
+    private final AtomicIntegerArray parked;
+
+    private final LiftFloorIndex floorIndex;
+
+    private final FloorOccupancy floorOccupancy;
+
+    private final LiftStateFeed stateFeed;
+
+    private LiftStateLog stateLog = LiftStateLog.NONE;
+
+    /**
+     * @param loadBypass share of a car's capacity from which it counts as full, above 1 never
+     */
+    LiftStateStore(String buildingId, List<Lift> lifts, int feedCapacity, double loadBypass) {
+        final int size = lifts.size();
+        this.buildingId = buildingId;
+        ids = new String[size];
+        travelNanosPerFloor = new long[size];
+        tonnage = new int[size];
+        currentFloor = new int[size];
+        lightOn = new boolean[size];
+        state = new LiftState[size];
+        direction = new Direction[size];
+        buttons = new LiftButtons[size];
+        load = new int[size];
+        passengerCapacity = new int[size];
+        bypassLoad = new int[size];
+        full = new boolean[size];
+        versions = new AtomicLongArray(size);
+        floorIndex = new LiftFloorIndex(ids);
+        pendingWordsPerLift = (size == 0) ? 0 : lifts.get(0).getButtons().getWordsQuantity();
+        pendingStops = new AtomicLongArray(size * pendingWordsPerLift);
+        parked = new AtomicIntegerArray(size);
+        floorOccupancy = new FloorOccupancy(size, (size == 0) ? 0 : lifts.get(0).getButtons().getFloorQuantity());
+        stateFeed = new LiftStateFeed(ids, feedCapacity);
+
+        for (int i = 0; i < size; i++) {
+            final Lift lift = lifts.get(i);
+            ids[i] = lift.getId();
+            travelNanosPerFloor[i] = lift.getTravelNanosPerFloor();
+            tonnage[i] = lift.getTonnage();
+            currentFloor[i] = lift.getCurrentFloor();
+            lightOn[i] = lift.isLightOn();
+            state[i] = lift.getState();
+            direction[i] = lift.getDirection();
+            buttons[i] = LiftButtons.copyOf(lift.getButtons());
+            passengerCapacity[i] = lift.getPassengerCapacity();
+            bypassLoad[i] = Math.max(1, (int) Math.ceil(passengerCapacity[i] * loadBypass));
+            floorIndex.add(i, tonnage[i], currentFloor[i], direction[i]);
+            floorOccupancy.add(currentFloor[i]);
+        }
+        indexes = IntStream.range(0, size).boxed()
+                .collect(Collectors.toUnmodifiableMap(i -> ids[i], i -> i,
+                        (a, b) -> {
+                            throw new RuntimeException(String.format("Conflicting lift names %s and %s", ids[a], ids[b]));
+                        }));
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    int indexOf(String id) {
+        final Integer index = indexes.get(id);
+        if (index == null) {
+            throw new RuntimeException(String.format("invalid lift %s", id));
+        }
+        return index;
+    }
+
+    String getId(int index) {
+        return ids[index];
+    }
+
+    long getTravelNanosPerFloor(int index) {
+        return travelNanosPerFloor[index];
+    }
+
+    int getTonnage(int index) {
+        return tonnage[index];
+    }
+
+    int getCurrentFloor(int index) {
+        return currentFloor[index];
+    }
+
+    int getLoad(int index) {
+        return load[index];
+    }
+
+    int getPassengerCapacity(int index) {
+        return passengerCapacity[index];
+    }
+
+    LiftState getState(int index) {
+        return state[index];
+    }
+
+    Direction getDirection(int index) {
+        return direction[index];
+    }
+
+    LiftButtons getButtons(int index) {
+        return buttons[index];
+    }
+
+    LiftFloorIndex getFloorIndex() {
+        return floorIndex;
+    }
+
+    FloorOccupancy getFloorOccupancy() {
+        return floorOccupancy;
+    }
+
+    LiftStateFeed getStateFeed() {
+        return stateFeed;
+    }
+
+    /**
+     * Set before the lifts start; every persistent change is reported to it once applied.
+     */
+    void setStateLog(LiftStateLog stateLog) {
+        this.stateLog = stateLog;
+    }
+
+    void setDirection(int index, Direction newDirection) {
+        floorIndex.move(index, tonnage[index], currentFloor[index], direction[index], currentFloor[index], newDirection);
+        beginWrite(index);
+        direction[index] = newDirection;
+        endWrite(index);
+        stateLog.direction(index, newDirection);
+        stateFeed.direction(index, newDirection);
+    }
+
+    void setStateAndLights(int index, LiftState newState, boolean newLightOn) {
+        beginWrite(index);
+        state[index] = newState;
+        lightOn[index] = newLightOn;
+        endWrite(index);
+        stateFeed.state(index, newState);
+        stateFeed.light(index, newLightOn);
+    }
+
+    void setCurrentFloorAndState(int index, int newFloor, LiftState newState) {
+        floorIndex.move(index, tonnage[index], currentFloor[index], direction[index], newFloor, direction[index]);
+        floorOccupancy.move(currentFloor[index], newFloor);
+        beginWrite(index);
+        currentFloor[index] = newFloor;
+        state[index] = newState;
+        endWrite(index);
+        stateLog.floor(index, newFloor);
+        stateFeed.floor(index, newFloor);
+        stateFeed.state(index, newState);
+    }
+
+    void turnOnButtonAtFloor(int index, int floor) {
+        beginWrite(index);
+        buttons[index].turnOnButtonAtFloor(floor);
+        endWrite(index);
+        stateLog.buttonOn(index, floor);
+        stateFeed.stopOn(index, floor);
+    }
+
+    void turnOffButtonAtFloor(int index, int floor) {
+        beginWrite(index);
+        buttons[index].turnOffButtonAtFloor(floor);
+        endWrite(index);
+        stateLog.buttonOff(index, floor);
+        stateFeed.stopOff(index, floor);
+    }
+
+    /**
+     * Lets up to {@code alighting} passengers off, then as many of {@code boarding} on as there is room for.
+     *
+     * @return passengers who boarded
+     */
+    int transferPassengers(int index, int alighting, int boarding) {
+        final int remaining = Math.max(0, load[index] - alighting);
+        final int boarded = Math.max(0, Math.min(boarding, passengerCapacity[index] - remaining));
+        final int newLoad = remaining + boarded;
+        final boolean newFull = newLoad >= bypassLoad[index];
+        floorIndex.setFull(index, tonnage[index], currentFloor[index], direction[index], newFull);
+        beginWrite(index);
+        load[index] = newLoad;
+        full[index] = newFull;
+        endWrite(index);
+        stateFeed.load(index, newLoad);
+        return boarded;
+    }
+
+    void addPendingStop(int index, int floor) {
+        if (floor < 0 || floor >= buttons[index].getFloorQuantity()) {
+            throw new RuntimeException(String.format("invalid floor %s", floor));
+        }
+        final long mask = 1L << floor;
+        pendingStops.getAndAccumulate(index * pendingWordsPerLift + (floor >>> 6), mask, (word, bit) -> word | bit);
+        stateLog.pendingStop(index, floor);
+        stateFeed.stopOn(index, floor);
+    }
+
+    /**
+     * @return whether the lift still has to stop at {@code floor}, pending stops included
+     */
+    boolean hasStop(int index, int floor) {
+        return buttons[index].isButtonPressed(floor)
+                || (pendingStops.get(index * pendingWordsPerLift + (floor >>> 6)) & (1L << floor)) != 0;
+    }
+
+    boolean hasPendingStops(int index) {
+        for (int w = 0; w < pendingWordsPerLift; w++) {
+            if (pendingStops.get(index * pendingWordsPerLift + w) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves the pending stops into the lift's buttons, so the lift is no longer idle; caller holds the lift's lock.
+     */
+    void drainPendingStops(int index) {
+        if (!hasPendingStops(index)) {
+            return;
+        }
+        floorOccupancy.clearIdle(index);
+        beginWrite(index);
+        for (int w = 0; w < pendingWordsPerLift; w++) {
+            final long stops = pendingStops.getAndSet(index * pendingWordsPerLift + w, 0);
+            if (stops != 0) {
+                buttons[index].turnOnButtonsInWord(w, stops);
+                for (long remaining = stops; remaining != 0; remaining &= remaining - 1) {
+                    stateLog.pendingStopDrained(index, (w << 6) + Long.numberOfTrailingZeros(remaining));
+                }
+            }
+        }
+        endWrite(index);
+    }
+
+    boolean isParked(int index) {
+        return parked.get(index) != 0;
+    }
+
+    void park(int index) {
+        parked.set(index, 1);
+    }
+
+    /**
+     * @return true for the single caller that actually unparked the lift
+     */
+    boolean unpark(int index) {
+        return parked.compareAndSet(index, 1, 0);
+    }
+
+    Lift snapshot(int index) {
+        return snapshot(index, true);
+    }
+
+    /**
+     * Stops registered but not yet moved into the lift's buttons, 64 floors per word.
+     */
+    long getPendingStops(int index, int wordIndex) {
+        return pendingStops.get(index * pendingWordsPerLift + wordIndex);
+    }
+
+    Lift snapshot(int index, boolean withPendingStops) {
+        while (true) {
+            final long version = versions.get(index);
+            if ((version & 1) == 0) {
+                final Lift lift = Lift.builder()
+                        .buildingId(buildingId)
+                        .id(ids[index])
+                        .travelNanosPerFloor(travelNanosPerFloor[index])
+                        .tonnage(tonnage[index])
+                        .currentFloor(currentFloor[index])
+                        .lightOn(lightOn[index])
+                        .state(state[index])
+                        .direction(direction[index])
+                        .load(load[index])
+                        .full(full[index])
+                        .buttons(withPendingStops
+                                ? withPendingStops(index, LiftButtons.copyOf(buttons[index]))
+                                : LiftButtons.copyOf(buttons[index]))
+                        .build();
+                VarHandle.loadLoadFence();
+                if (versions.get(index) == version) {
+                    return lift;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    Map<String, Lift> snapshot() {
+        final Map<String, Lift> lifts = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            lifts.put(ids[i], snapshot(i));
+        }
+        return Collections.unmodifiableMap(lifts);
+    }
+
+    /**
+     * Copies every lift's position, heading and stops, pending ones included, without allocating per lift.
+     */
+    LiftRoutes routes() {
+        final LiftRoutes routes = new LiftRoutes(ids, (ids.length == 0) ? 0 : buttons[0].getFloorQuantity());
+        final long[] stops = new long[routes.getWordsPerLift()];
+        for (int i = 0; i < ids.length; i++) {
+            copyRoute(i, routes, i, stops);
+        }
+        return routes;
+    }
+
+    /**
+     * Same as {@link #routes()} for a single lift, at index 0 of the result.
+     */
+    LiftRoutes routes(int index) {
+        final LiftRoutes routes = new LiftRoutes(new String[]{ids[index]}, buttons[index].getFloorQuantity());
+        copyRoute(index, routes, 0, new long[routes.getWordsPerLift()]);
+        return routes;
+    }
+
+    private void copyRoute(int index, LiftRoutes routes, int lift, long[] stops) {
+        while (true) {
+            final long version = versions.get(index);
+            if ((version & 1) == 0) {
+                final int floor = currentFloor[index];
+                final Direction heading = direction[index];
+                final boolean isFull = full[index];
+                for (int w = 0; w < stops.length; w++) {
+                    stops[w] = buttons[index].getWord(w) | pendingStops.get(index * pendingWordsPerLift + w);
+                }
+                VarHandle.loadLoadFence();
+                if (versions.get(index) == version) {
+                    routes.set(lift, floor, heading, travelNanosPerFloor[index], stops, isFull);
+                    return;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private LiftButtons withPendingStops(int index, LiftButtons liftButtons) {
+        for (int w = 0; w < pendingWordsPerLift; w++) {
+            liftButtons.turnOnButtonsInWord(w, pendingStops.get(index * pendingWordsPerLift + w));
+        }
+        return liftButtons;
+    }
+
+    private void beginWrite(int index) {
+        versions.set(index, versions.get(index) + 1);
+        VarHandle.storeStoreFence();
+    }
+
+    private void endWrite(int index) {
+        versions.set(index, versions.get(index) + 1);
+    }
+}
@@ -0,0 +1,242 @@
+package app.service.impl;
+
+import app.domain.LiftStateFeed;
+import app.domain.LiftsSnapshot;
+import app.service.LiftEngineService;
+import app.service.LiftStateSubscriber;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jcabi.log.VerboseRunnable;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes a building's {@link LiftStateFeed} to its subscribers as server-sent event frames. Every round
+ * the new deltas are encoded once and the same bytes go to each subscriber that is up to date;
+ * subscribers resuming from an older sequence, or still busy with their previous frame, read their
+ * own range from the ring, and one the ring has moved past gets a fresh snapshot instead.
+ */
+@Slf4j
+public class LiftStateStream {
+
+    private static final long NEW_SUBSCRIBER = -1;
+
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final class Subscriber {
+
+        private final LiftStateSubscriber target;
+
+        private final AtomicBoolean writing = new AtomicBoolean();
+
+        private long nextSequence;
+
+        private long lastWriteNanos = System.nanoTime();
+
+        private Subscriber(LiftStateSubscriber target, long nextSequence) {
+            this.target = target;
+            this.nextSequence = nextSequence;
+        }
+    }
+
+    private final String buildingId;
+
+    private final LiftEngineService liftEngineService;
+
+    private final ObjectMapper objectMapper;
+
+    private final Duration interval;
+
+    private final int writerThreads;
+
+    private final Map<LiftStateSubscriber, Subscriber> subscribers = new ConcurrentHashMap<>();
+
+    private LiftStateFeed feed;
+
+    private long sharedSequence;
+
+    private ScheduledExecutorService broadcaster;
+
+    private ExecutorService writers;
+
+    public LiftStateStream(String buildingId, LiftEngineService liftEngineService, ObjectMapper objectMapper,
+                           Duration interval, int writerThreads) {
+        this.buildingId = buildingId;
+        this.liftEngineService = liftEngineService;
+        this.objectMapper = objectMapper;
+        this.interval = interval;
+        this.writerThreads = writerThreads;
+    }
+
+    /**
+     * Called once the engine is initialized.
+     */
+    void start() {
+        feed = liftEngineService.getLiftStateFeed();
+        sharedSequence = feed.getSequence();
+        writers = Executors.newFixedThreadPool(writerThreads);
+        broadcaster = Executors.newSingleThreadScheduledExecutor();
+        broadcaster.scheduleWithFixedDelay(new VerboseRunnable(this::broadcast, true),
+                interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    void shutdown() {
+        if (broadcaster != null) {
+            broadcaster.shutdownNow();
+            writers.shutdownNow();
+        }
+        subscribers.keySet().forEach(LiftStateSubscriber::complete);
+        subscribers.clear();
+    }
+
+    /**
+     * @return the lifts along with the feed sequence read before copying them
+     */
+    LiftsSnapshot snapshot() {
+        final long sequence = feed.getSequence();
+        return new LiftsSnapshot(buildingId, sequence, liftEngineService.getCurrentLiftsStateSnapshot());
+    }
+
+    void subscribe(long fromSequence, LiftStateSubscriber target) {
+        subscribers.put(target, new Subscriber(target, (fromSequence >= 0 && fromSequence <= feed.getSequence())
+                ? fromSequence
+                : NEW_SUBSCRIBER));
+    }
+
+    void unsubscribe(LiftStateSubscriber target) {
+        subscribers.remove(target);
+    }
+
+    int getSubscribersCount() {
+        return subscribers.size();
+    }
+
+    private void broadcast() {
+        final long to = feed.getSequence();
+        final StringBuilder text = new StringBuilder();
+        final long sharedTo = appendDeltas(sharedSequence, to, text);
+        final byte[] shared = (sharedTo > sharedSequence) ? bytes(text) : null;
+
+        byte[] snapshot = null;
+        long snapshotSequence = 0;
+        final long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers.values()) {
+            if (subscriber.writing.get()) {
+                continue;
+            }
+            final byte[] frame;
+            if (subscriber.nextSequence == sharedSequence && sharedTo != LiftStateFeed.OVERWRITTEN) {
+                frame = shared;
+                subscriber.nextSequence = sharedTo;
+            } else {
+                text.setLength(0);
+                final long reached = (subscriber.nextSequence == NEW_SUBSCRIBER)
+                        ? LiftStateFeed.OVERWRITTEN
+                        : appendDeltas(subscriber.nextSequence, to, text);
+                if (reached == LiftStateFeed.OVERWRITTEN) {
+                    if (snapshot == null) {
+                        final LiftsSnapshot liftsSnapshot = snapshot();
+                        snapshotSequence = liftsSnapshot.getSequence();
+                        snapshot = snapshotFrame(liftsSnapshot);
+                    }
+                    frame = snapshot;
+                    subscriber.nextSequence = snapshotSequence;
+                } else {
+                    frame = (reached > subscriber.nextSequence) ? bytes(text) : null;
+                    subscriber.nextSequence = reached;
+                }
+            }
+            if (frame != null) {
+                write(subscriber, frame, now);
+            } else if (now - subscriber.lastWriteNanos > HEARTBEAT_INTERVAL.toNanos()) {
+                write(subscriber, HEARTBEAT, now);
+            }
+        }
+        sharedSequence = (sharedTo == LiftStateFeed.OVERWRITTEN) ? to : sharedTo;
+    }
+
+    private void write(Subscriber subscriber, byte[] frame, long now) {
+        subscriber.writing.set(true);
+        subscriber.lastWriteNanos = now;
+        writers.execute(() -> {
+            try {
+                subscriber.target.send(frame);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Subscriber of building {} is gone: {}", buildingId, e.getMessage());
+                subscribers.remove(subscriber.target);
+            } finally {
+                subscriber.writing.set(false);
+            }
+        });
+    }
+
+    /**
+     * Appends one event of the deltas from {@code from} up to {@code to} or the first one still being written.
+     *
+     * @return sequence following the last delta appended or {@link LiftStateFeed#OVERWRITTEN}
+     */
+    private long appendDeltas(long from, long to, StringBuilder text) {
+        long sequence = from;
+        for (; sequence < to; sequence++) {
+            final long delta = feed.get(sequence);
+            if (delta == LiftStateFeed.NOT_PUBLISHED) {
+                break;
+            }
+            if (delta == LiftStateFeed.OVERWRITTEN) {
+                return LiftStateFeed.OVERWRITTEN;
+            }
+            text.append("data:").append(feed.liftOf(delta)).append(' ')
+                    .append(fieldOf(delta)).append(' ')
+                    .append(LiftStateFeed.valueOf(delta)).append('\n');
+        }
+        if (sequence > from) {
+            text.append("id:").append(sequence).append("\n\n");
+        }
+        return sequence;
+    }
+
+    private static char fieldOf(long delta) {
+        switch (LiftStateFeed.typeOf(delta)) {
+            case LiftStateFeed.FLOOR:
+                return 'f';
+            case LiftStateFeed.DIRECTION:
+                return 'd';
+            case LiftStateFeed.STATE:
+                return 's';
+            case LiftStateFeed.LIGHT:
+                return 'l';
+            case LiftStateFeed.STOP_ON:
+                return '+';
+            case LiftStateFeed.LOAD:
+                return 'p';
+            default:
+                return '-';
+        }
+    }
+
+    private byte[] snapshotFrame(LiftsSnapshot liftsSnapshot) {
+        try {
+            return bytes(new StringBuilder("event:snapshot\ndata:")
+                    .append(objectMapper.writeValueAsString(liftsSnapshot))
+                    .append("\nid:").append(liftsSnapshot.getSequence()).append("\n\n"));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(String.format("Can't encode lifts of building %s", buildingId), e);
+        }
+    }
+
+    private static byte[] bytes(StringBuilder text) {
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
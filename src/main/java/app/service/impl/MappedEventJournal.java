@@ -0,0 +1,172 @@
+package app.service.impl;
+
+import app.domain.enums.Direction;
+import app.service.LiftEventListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only journal of lift events. Each event claims a fixed-size slot and is stored straight
+ * into a memory-mapped segment of the file, so recording is an atomic add and a few stores: no
+ * locks, syscalls or allocation on the lift threads. Written pages survive a JVM crash; flushing
+ * them to disk is left to the OS.
+ * <p>
+ * Layout, big-endian: a header of magic {@code LEVJ}, version, header size, record size, lifts
+ * quantity, floors quantity and every lift id (modified UTF-8), zero-padded to the header size;
+ * then 32-byte records of simulation nanos (long), wall-clock epoch millis (long), lift number in
+ * header order (int), floor (int), event type (byte: 1 departure, 2 floor arrival, 3 stop, 4 idle),
+ * direction (byte: 0 none, otherwise ordinal + 1) and padding. The file grows in sparse 64 MB
+ * segments; slots of type 0 were never written.
+ */
+@Slf4j
+public class MappedEventJournal implements LiftEventListener, Closeable {
+
+    private static final int MAGIC = 0x4C45564A;
+
+    private static final int VERSION = 1;
+
+    private static final int RECORD_SIZE = 32;
+
+    private static final int HEADER_ALIGNMENT = 4096;
+
+    private static final long SEGMENT_SIZE = 64L << 20;
+
+    private static final byte DEPARTURE = 1;
+
+    private static final byte FLOOR_ARRIVAL = 2;
+
+    private static final byte STOP = 3;
+
+    private static final byte IDLE = 4;
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    private final AtomicLong nextOffset = new AtomicLong();
+
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    private volatile boolean closed;
+
+    private long headerSize;
+
+    public MappedEventJournal(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            file = directory.resolve(String.format("lift-events-%d.journal", System.currentTimeMillis()));
+            channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Can't create event journal in %s", directory), e);
+        }
+        log.info("Journaling lift events to {}", file);
+    }
+
+    @Override
+    public void registerLifts(List<String> liftIds, int floorsQuantity) {
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream header = new DataOutputStream(bytes);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(0);
+            header.writeInt(RECORD_SIZE);
+            header.writeInt(liftIds.size());
+            header.writeInt(floorsQuantity);
+            for (String liftId : liftIds) {
+                header.writeUTF(liftId);
+            }
+            final byte[] padded = Arrays.copyOf(bytes.toByteArray(),
+                    (bytes.size() + HEADER_ALIGNMENT - 1) / HEADER_ALIGNMENT * HEADER_ALIGNMENT);
+            ByteBuffer.wrap(padded).putInt(8, padded.length);
+            channel.write(ByteBuffer.wrap(padded), 0);
+            headerSize = padded.length;
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Can't write event journal %s", file), e);
+        }
+    }
+
+    @Override
+    public void onDeparture(int lift, int floor, Direction direction, long nanoTime) {
+        append(lift, floor, DEPARTURE, direction, nanoTime);
+    }
+
+    @Override
+    public void onFloorArrival(int lift, int floor, long nanoTime) {
+        append(lift, floor, FLOOR_ARRIVAL, null, nanoTime);
+    }
+
+    @Override
+    public void onStop(int lift, int floor, long nanoTime) {
+        append(lift, floor, STOP, null, nanoTime);
+    }
+
+    @Override
+    public void onIdle(int lift, int floor, long nanoTime) {
+        append(lift, floor, IDLE, null, nanoTime);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    private void append(int lift, int floor, byte type, Direction direction, long nanoTime) {
+        if (closed) {
+            return;
+        }
+        final long offset = nextOffset.getAndAdd(RECORD_SIZE);
+        final MappedByteBuffer segment;
+        try {
+            segment = segment((int) (offset / SEGMENT_SIZE));
+        } catch (IOException e) {
+            log.error("Event journal {} stopped", file, e);
+            closed = true;
+            return;
+        }
+        final int at = (int) (offset % SEGMENT_SIZE);
+        segment.putLong(at, nanoTime);
+        segment.putLong(at + 8, System.currentTimeMillis());
+        segment.putInt(at + 16, lift);
+        segment.putInt(at + 20, floor);
+        segment.put(at + 25, (direction == null) ? 0 : (byte) (direction.ordinal() + 1));
+        segment.put(at + 24, type);
+    }
+
+    private MappedByteBuffer segment(int index) throws IOException {
+        final MappedByteBuffer[] mapped = segments;
+        if (index < mapped.length && mapped[index] != null) {
+            return mapped[index];
+        }
+        return mapSegment(index);
+    }
+
+    /**
+     * Maps segments on demand and lets go of those two behind, which no writer should still be in.
+     */
+    private synchronized MappedByteBuffer mapSegment(int index) throws IOException {
+        final MappedByteBuffer[] mapped = Arrays.copyOf(segments, Math.max(segments.length, index + 1));
+        if (mapped[index] == null) {
+            mapped[index] = channel.map(FileChannel.MapMode.READ_WRITE, headerSize + index * SEGMENT_SIZE, SEGMENT_SIZE);
+        }
+        if (index >= 2) {
+            mapped[index - 2] = null;
+        }
+        segments = mapped;
+        return mapped[index];
+    }
+}
@@ -0,0 +1,282 @@
+package app.service.impl;
+
+import app.domain.enums.Direction;
+import app.domain.enums.DispatchRule;
+import app.service.LiftClock;
+import app.service.LiftMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.Setter;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Publishes the lift metrics of one building to Micrometer, tagged with the building id.
+ * Histograms are read only when the registry is scraped, published as a timer plus p50/p90/p99
+ * gauges; hall-call wait and per-lift figures are in simulation time of the {@link LiftClock}.
+ */
+public class MicrometerLiftMetrics implements LiftMetrics {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private static final long NO_CALL = 0;
+
+    /**
+     * Handling capacity is counted over this many one-minute slots, the usual five-minute peak.
+     */
+    private static final int HANDLING_CAPACITY_MINUTES = 5;
+
+    private final MeterRegistry meterRegistry;
+
+    private final LiftClock liftClock;
+
+    private final Tags building;
+
+    private final Map<DispatchRule, LatencyHistogram> dispatchLatency = new EnumMap<>(DispatchRule.class);
+
+    private final LongAdder noLiftFound = new LongAdder();
+
+    private final LatencyHistogram hallCallWait = new LatencyHistogram();
+
+    private final LatencyHistogram lockWait = new LatencyHistogram();
+
+    private final LongAdder boarded = new LongAdder();
+
+    /**
+     * Passengers boarded by one-minute slot, the minute in the high half and the count in the low half
+     * so a slot moves on to its next minute in the same update that counts the minute's first boarding.
+     */
+    private final AtomicLongArray boardedPerMinute = new AtomicLongArray(HANDLING_CAPACITY_MINUTES);
+
+    private final LongAdder departures = new LongAdder();
+
+    /**
+     * Load factors of the cars leaving each floor added up, in thousandths.
+     */
+    private final LongAdder departureLoadPermille = new LongAdder();
+
+    /**
+     * Registers a lift's own meters when it first departs instead of every lift's up front, which
+     * is most of the startup time of a large fleet.
+     */
+    @Setter
+    private boolean lazyLiftMeters;
+
+    private List<String> liftIds;
+
+    private Map<String, Integer> liftIndexes;
+
+    /**
+     * Guarded by the lift's lock, as every lift event is.
+     */
+    private boolean[] liftMetersRegistered;
+
+    private int floorsQuantity;
+
+    private long startNanos;
+
+    private AtomicLongArray hallCallSince;
+
+    private AtomicLongArray departedNanos;
+
+    private AtomicLongArray busyNanos;
+
+    private AtomicLongArray stops;
+
+    private AtomicIntegerArray load;
+
+    private AtomicIntegerArray capacity;
+
+    public MicrometerLiftMetrics(MeterRegistry meterRegistry, LiftClock liftClock, String buildingId) {
+        this.meterRegistry = meterRegistry;
+        this.liftClock = liftClock;
+        this.building = Tags.of("building", buildingId);
+
+        for (DispatchRule rule : DispatchRule.values()) {
+            final LatencyHistogram histogram = new LatencyHistogram();
+            dispatchLatency.put(rule, histogram);
+            registerHistogram("lift.dispatch.latency", "Time to pick a lift for a hall call, by the rule that picked it",
+                    building.and("rule", rule.name().toLowerCase().replace('_', '-')), histogram);
+        }
+        FunctionCounter.builder("lift.dispatch.no.lift.found", noLiftFound, LongAdder::sum)
+                .description("Hall calls no lift could be found for")
+                .tags(building)
+                .register(meterRegistry);
+        registerHistogram("lift.hall.call.wait", "Time from a hall call to the assigned lift stopping at the floor",
+                building, hallCallWait);
+        registerHistogram("lift.lock.wait", "Time spent waiting for a contended lift lock",
+                building, lockWait);
+        FunctionCounter.builder("lift.passengers.boarded", boarded, LongAdder::sum)
+                .description("Passengers who got on a car")
+                .tags(building)
+                .register(meterRegistry);
+        Gauge.builder("lift.handling.capacity", this, MicrometerLiftMetrics::boardedInLastMinutes)
+                .description("Passengers who got on a car in the last 5 minutes of simulation time")
+                .tags(building)
+                .register(meterRegistry);
+        Gauge.builder("lift.departure.load.factor", this, MicrometerLiftMetrics::meanDepartureLoadFactor)
+                .description("Mean share of their passenger capacity cars had on board per floor travelled")
+                .tags(building)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public synchronized void registerLifts(List<String> liftIds, int floorsQuantity) {
+        this.liftIndexes = IntStream.range(0, liftIds.size()).boxed()
+                .collect(Collectors.toUnmodifiableMap(liftIds::get, i -> i));
+        this.floorsQuantity = floorsQuantity;
+        this.startNanos = liftClock.nanoTime();
+        this.hallCallSince = new AtomicLongArray(liftIds.size() * floorsQuantity);
+        this.departedNanos = new AtomicLongArray(liftIds.size());
+        this.busyNanos = new AtomicLongArray(liftIds.size());
+        this.stops = new AtomicLongArray(liftIds.size());
+        this.load = new AtomicIntegerArray(liftIds.size());
+        this.capacity = new AtomicIntegerArray(liftIds.size());
+
+        this.liftIds = liftIds;
+        this.liftMetersRegistered = new boolean[liftIds.size()];
+        if (!lazyLiftMeters) {
+            for (int i = 0; i < liftIds.size(); i++) {
+                registerLiftMeters(i);
+            }
+        }
+    }
+
+    private void registerLiftMeters(int index) {
+        liftMetersRegistered[index] = true;
+        final Tags lift = building.and("lift", liftIds.get(index));
+        FunctionCounter.builder("lift.busy.time", busyNanos, busy -> busy.get(index) / 1e9)
+                .description("Simulation time spent travelling between floors")
+                .baseUnit("seconds")
+                .tags(lift)
+                .register(meterRegistry);
+        FunctionCounter.builder("lift.stops", stops, served -> served.get(index))
+                .description("Stops served")
+                .tags(lift)
+                .register(meterRegistry);
+        Gauge.builder("lift.utilization", busyNanos, busy -> busy.get(index) / (double) elapsedNanos())
+                .description("Share of simulation time spent travelling since start")
+                .tags(lift)
+                .register(meterRegistry);
+        Gauge.builder("lift.load.factor", load, passengers -> passengers.get(index) / (double) Math.max(1, capacity.get(index)))
+                .description("Share of its passenger capacity the car has on board")
+                .tags(lift)
+                .register(meterRegistry);
+        Gauge.builder("lift.stops.per.hour", stops, served -> served.get(index) * (double) TimeUnit.HOURS.toNanos(1) / elapsedNanos())
+                .description("Stops served per hour of simulation time since start")
+                .tags(lift)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void recordDispatch(DispatchRule rule, long nanos) {
+        dispatchLatency.get(rule).record(nanos);
+    }
+
+    @Override
+    public void recordNoLiftFound() {
+        noLiftFound.increment();
+    }
+
+    @Override
+    public void recordHallCall(String liftId, int floor) {
+        hallCallSince.compareAndSet(liftIndexes.get(liftId) * floorsQuantity + floor, NO_CALL, liftClock.nanoTime() + 1);
+    }
+
+    @Override
+    public void recordLockWait(long nanos) {
+        lockWait.record(nanos);
+    }
+
+    @Override
+    public void onDeparture(int lift, int floor, Direction direction, long nanoTime) {
+        if (!liftMetersRegistered[lift]) {
+            registerLiftMeters(lift);
+        }
+        departedNanos.set(lift, nanoTime);
+        departures.increment();
+        if (capacity.get(lift) > 0) {
+            departureLoadPermille.add(load.get(lift) * 1000L / capacity.get(lift));
+        }
+    }
+
+    @Override
+    public void onFloorArrival(int lift, int floor, long nanoTime) {
+        busyNanos.set(lift, busyNanos.get(lift) + nanoTime - departedNanos.get(lift));
+    }
+
+    @Override
+    public void onStop(int lift, int floor, long nanoTime) {
+        stops.set(lift, stops.get(lift) + 1);
+        final long calledNanos = hallCallSince.getAndSet(lift * floorsQuantity + floor, NO_CALL);
+        if (calledNanos != NO_CALL) {
+            hallCallWait.record(nanoTime - (calledNanos - 1));
+        }
+    }
+
+    @Override
+    public void onPassengerTransfer(int lift, int floor, int alighted, int boarded, int load, int capacity, long nanoTime) {
+        this.load.set(lift, load);
+        this.capacity.set(lift, capacity);
+        this.boarded.add(boarded);
+        final long minute = TimeUnit.NANOSECONDS.toMinutes(nanoTime - startNanos);
+        final int slot = (int) (minute % HANDLING_CAPACITY_MINUTES);
+        long counted;
+        do {
+            counted = boardedPerMinute.get(slot);
+            if ((counted >>> 32) > minute) {
+                // the slot already counts a later minute, this one is out of the window
+                return;
+            }
+        } while (!boardedPerMinute.compareAndSet(slot, counted,
+                ((counted >>> 32) == minute) ? counted + boarded : (minute << 32) | boarded));
+    }
+
+    private long boardedInLastMinutes() {
+        final long minute = TimeUnit.NANOSECONDS.toMinutes(liftClock.nanoTime() - startNanos);
+        long total = 0;
+        for (int slot = 0; slot < HANDLING_CAPACITY_MINUTES; slot++) {
+            final long counted = boardedPerMinute.get(slot);
+            if (minute - (counted >>> 32) < HANDLING_CAPACITY_MINUTES) {
+                total += counted & 0xFFFF_FFFFL;
+            }
+        }
+        return total;
+    }
+
+    private double meanDepartureLoadFactor() {
+        return departureLoadPermille.sum() / 1000.0 / Math.max(1, departures.sum());
+    }
+
+    private long elapsedNanos() {
+        return Math.max(1, liftClock.nanoTime() - startNanos);
+    }
+
+    private void registerHistogram(String name, String description, Tags tags, LatencyHistogram histogram) {
+        FunctionTimer.builder(name, histogram, LatencyHistogram::getCount, LatencyHistogram::getTotal, TimeUnit.NANOSECONDS)
+                .description(description)
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder(name + ".max", histogram, h -> h.getMax() / 1e9)
+                .baseUnit("seconds")
+                .tags(tags)
+                .register(meterRegistry);
+        for (double quantile : QUANTILES) {
+            Gauge.builder(name + ".percentile", histogram, h -> h.getValueAtQuantile(quantile) / 1e9)
+                    .baseUnit("seconds")
+                    .tags(tags.and("phi", String.valueOf(quantile)))
+                    .register(meterRegistry);
+        }
+    }
+}
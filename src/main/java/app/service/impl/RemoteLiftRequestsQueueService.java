@@ -0,0 +1,136 @@
+package app.service.impl;
+
+import app.domain.DispatchQueueStats;
+import app.domain.ElevateRequest;
+import app.domain.LiftAssignment;
+import app.service.LiftRequestsQueueService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forwards requests to the node running their building. An unreachable node counts as a full
+ * queue, so callers back off and retry instead of failing. Submitted requests are forwarded on
+ * a bounded pool of threads, so callers on an event loop never wait for the node; once a slow node
+ * has filled the pool and its queue, further requests are refused as a full queue as well.
+ */
+@Slf4j
+public class RemoteLiftRequestsQueueService implements LiftRequestsQueueService, Closeable {
+
+    static final int FORWARDER_THREADS = 16;
+
+    static final int FORWARDER_QUEUE_CAPACITY = 256;
+
+    private final RestTemplate restTemplate;
+
+    private final String baseUrl;
+
+    private final ThreadPoolExecutor forwarder;
+
+    public RemoteLiftRequestsQueueService(RestTemplate restTemplate, String baseUrl) {
+        this.restTemplate = restTemplate;
+        this.baseUrl = baseUrl;
+        this.forwarder = new ThreadPoolExecutor(FORWARDER_THREADS, FORWARDER_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(FORWARDER_QUEUE_CAPACITY), runnable -> {
+                    final Thread thread = new Thread(runnable, "lift-requests-forwarder");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        forwarder.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return the size of the batch, or 0 when the node took only part of it: hall calls are
+     * idempotent, so the whole batch can safely be retried
+     */
+    @Override
+    public int enqueueAll(Collection<ElevateRequest> requests) {
+        return post("/lift-requests/batch", requests) ? requests.size() : 0;
+    }
+
+    /**
+     * Has the node check the requests. An unreachable or full node lets them through: its
+     * {@link #enqueueAll(Collection)} then takes none of them, which callers retry.
+     */
+    @Override
+    public void validateAll(Collection<ElevateRequest> requests) {
+        post("/lift-requests/batch/validation", requests);
+    }
+
+    /**
+     * @return completes with null when the node only acknowledges the request, or fails with
+     * {@link RejectedExecutionException} when the node is full, unreachable or too slow to keep up
+     */
+    @Override
+    public CompletableFuture<LiftAssignment> submit(ElevateRequest request) {
+        try {
+            return forward(request);
+        } catch (RejectedExecutionException e) {
+            log.warn("Building node {} has {} requests in flight, refusing more", baseUrl, forwarder.getActiveCount() + forwarder.getQueue().size());
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Lift requests queue is full", e));
+        }
+    }
+
+    private CompletableFuture<LiftAssignment> forward(ElevateRequest request) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return restTemplate.postForEntity(baseUrl + "/lift-requests", request, LiftAssignment.class).getBody();
+            } catch (HttpStatusCodeException e) {
+                if (e.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE) {
+                    throw new RejectedExecutionException("Lift requests queue is full");
+                }
+                if (e.getStatusCode() == HttpStatus.BAD_REQUEST) {
+                    throw new IllegalArgumentException(e.getResponseBodyAsString(), e);
+                }
+                throw new RuntimeException(String.format("Building node %s failed the request: %s %s",
+                        baseUrl, e.getStatusCode(), e.getResponseBodyAsString()), e);
+            } catch (ResourceAccessException e) {
+                log.warn("Building node {} is unreachable: {}", baseUrl, e.getMessage());
+                throw new RejectedExecutionException(String.format("Building node %s is unreachable", baseUrl), e);
+            }
+        }, forwarder);
+    }
+
+    @Override
+    public DispatchQueueStats getStats() {
+        try {
+            return restTemplate.getForObject(baseUrl + "/lift-requests/queue", DispatchQueueStats.class);
+        } catch (ResourceAccessException e) {
+            log.warn("Building node {} is unreachable: {}", baseUrl, e.getMessage());
+            return DispatchQueueStats.builder().build();
+        }
+    }
+
+    @Override
+    public void close() {
+        forwarder.shutdownNow();
+    }
+
+    private boolean post(String path, Object body) {
+        try {
+            return restTemplate.postForEntity(baseUrl + path, body, String.class).getStatusCode().is2xxSuccessful();
+        } catch (HttpStatusCodeException e) {
+            if (e.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE) {
+                return false;
+            }
+            if (e.getStatusCode() == HttpStatus.BAD_REQUEST) {
+                throw new IllegalArgumentException(e.getResponseBodyAsString(), e);
+            }
+            throw new RuntimeException(String.format("Building node %s failed the request: %s %s",
+                    baseUrl, e.getStatusCode(), e.getResponseBodyAsString()), e);
+        } catch (ResourceAccessException e) {
+            log.warn("Building node {} is unreachable: {}", baseUrl, e.getMessage());
+            return false;
+        }
+    }
+}
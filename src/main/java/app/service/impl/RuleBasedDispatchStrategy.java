@@ -0,0 +1,78 @@
+package app.service.impl;
+
+import app.domain.ElevateRequest;
+import app.domain.LiftFloorIndex;
+import app.domain.enums.Direction;
+import app.domain.enums.DispatchRule;
+import app.service.DispatchStrategy;
+import app.service.LiftEngineService;
+import app.service.LiftMetrics;
+import lombok.AllArgsConstructor;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Closest idle lift, else the closest one already moving towards the call, else just the closest;
+ * ties go to the lowest tonnage.
+ */
+@AllArgsConstructor
+public class RuleBasedDispatchStrategy implements DispatchStrategy {
+
+    private static final DispatchRule[] RULES = DispatchRule.values();
+
+    private final LiftMetrics liftMetrics;
+
+    /**
+     * A single call is matched against the live index, a batch against one snapshot of the lifts.
+     */
+    @Override
+    public List<String> selectLifts(List<ElevateRequest> requests, LiftEngineService liftEngineService) {
+        if (requests.size() == 1) {
+            return List.of(getMostSuitableLift(requests.get(0), liftEngineService.getLiftFloorIndex()));
+        }
+        final LiftFloorIndex liftFloorIndex = LiftFloorIndex.of(liftEngineService.getCurrentLiftsStateSnapshot().values());
+        final List<String> liftIds = new ArrayList<>(requests.size());
+        for (ElevateRequest request : requests) {
+            liftIds.add(getMostSuitableLift(request, liftFloorIndex));
+        }
+        return liftIds;
+    }
+
+    /**
+     * Tries the rules in {@link DispatchRule} order.
+     */
+    private String getMostSuitableLift(ElevateRequest elevateRequest, LiftFloorIndex liftFloorIndex) {
+        return getFirstMatchingLift(List.of(
+                getClosestIdleFunction(elevateRequest),
+                getClosestMovingToRequesterFunction(elevateRequest),
+                getJustClosestToRequesterFunction(elevateRequest)),
+                liftFloorIndex
+        );
+    }
+
+    private Function<LiftFloorIndex, Optional<String>> getClosestIdleFunction(ElevateRequest elevateRequest) {
+        return liftFloorIndex -> liftFloorIndex.findClosest(elevateRequest.getFloorNumber(), Direction.ANY);
+    }
+
+    private Function<LiftFloorIndex, Optional<String>> getJustClosestToRequesterFunction(ElevateRequest elevateRequest) {
+        return liftFloorIndex -> liftFloorIndex.findClosest(elevateRequest.getFloorNumber());
+    }
+
+    private Function<LiftFloorIndex, Optional<String>> getClosestMovingToRequesterFunction(ElevateRequest elevateRequest) {
+        return liftFloorIndex -> liftFloorIndex.findClosestMovingTowards(elevateRequest.getFloorNumber(), elevateRequest.getDirection());
+    }
+
+    private String getFirstMatchingLift(List<Function<LiftFloorIndex, Optional<String>>> idCalculators, LiftFloorIndex liftFloorIndex) {
+        final long started = System.nanoTime();
+        for (int i = 0; i < idCalculators.size(); i++) {
+            final Optional<String> liftId = idCalculators.get(i).apply(liftFloorIndex);
+            if (liftId.isPresent()) {
+                liftMetrics.recordDispatch(RULES[i], System.nanoTime() - started);
+                return liftId.get();
+            }
+        }
+        liftMetrics.recordNoLiftFound();
+        throw new RuntimeException("No Lift Found to process request");
+    }
+}
@@ -0,0 +1,47 @@
+package app.service.impl;
+
+import app.service.LiftClock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall clock sped up {@code speedUp} times; a speed-up of 1 is real time.
+ */
+public class ScaledLiftClock implements LiftClock {
+
+    private final double speedUp;
+
+    private final long origin = System.nanoTime();
+
+    public ScaledLiftClock(double speedUp) {
+        if (speedUp <= 0) {
+            throw new RuntimeException(String.format("invalid clock speed-up %s", speedUp));
+        }
+        this.speedUp = speedUp;
+    }
+
+    @Override
+    public long nanoTime() {
+        return (long) ((System.nanoTime() - origin) * speedUp);
+    }
+
+    @Override
+    public void sleep(long nanos) throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(toWallNanos(nanos));
+    }
+
+    @Override
+    public long toWallNanos(long nanos) {
+        return (long) (nanos / speedUp);
+    }
+
+    @Override
+    public boolean isVirtual() {
+        return false;
+    }
+
+    @Override
+    public void advanceTo(long nanoTime) {
+        throw new RuntimeException("Only a virtual clock can be advanced");
+    }
+}
@@ -0,0 +1,146 @@
+package app.service.impl;
+
+import app.domain.DispatchQueueStats;
+import app.domain.ElevateRequest;
+import app.domain.LiftAssignment;
+import app.service.LiftRequestsQueueService;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Routes each request by its building id, either to the building's shard on this node or to
+ * the node running it; requests without a building id go to the only building there is.
+ */
+@Slf4j
+public class ShardedLiftRequestsQueueService implements LiftRequestsQueueService {
+
+    private final Map<String, LiftRequestsQueueService> buildings = new HashMap<>();
+
+    private final Set<LiftRequestsQueueService> nodes = new LinkedHashSet<>();
+
+    private final LiftRequestsQueueService singleBuilding;
+
+    public ShardedLiftRequestsQueueService(BuildingShards localBuildings, Map<String, LiftRequestsQueueService> remoteBuildings) {
+        for (BuildingShard shard : localBuildings.getAll()) {
+            buildings.put(shard.getBuildingId(), shard.getLiftRequestsQueueService());
+            nodes.add(shard.getLiftRequestsQueueService());
+        }
+        remoteBuildings.forEach((buildingId, node) -> {
+            if (buildings.putIfAbsent(buildingId, node) != null) {
+                throw new RuntimeException(String.format("Building %s is configured both locally and remotely", buildingId));
+            }
+            nodes.add(node);
+        });
+        this.singleBuilding = (buildings.size() == 1) ? buildings.values().iterator().next() : null;
+    }
+
+    /**
+     * Releases what the connections to other nodes hold; local buildings are stopped with their shards.
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (LiftRequestsQueueService node : nodes) {
+            if (node instanceof Closeable) {
+                try {
+                    ((Closeable) node).close();
+                } catch (IOException e) {
+                    log.error("Failed to close {}", node, e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int enqueueAll(Collection<ElevateRequest> requests) {
+        if (singleBuilding != null) {
+            // still fails on an unknown building id
+            requests.forEach(this::buildingOf);
+            return singleBuilding.enqueueAll(requests);
+        }
+        final Map<LiftRequestsQueueService, List<ElevateRequest>> requestsByBuilding = byBuilding(requests);
+        // every building checks its calls before any building takes one
+        requestsByBuilding.forEach(LiftRequestsQueueService::validateAll);
+        int accepted = 0;
+        for (Map.Entry<LiftRequestsQueueService, List<ElevateRequest>> building : requestsByBuilding.entrySet()) {
+            accepted += building.getKey().enqueueAll(building.getValue());
+        }
+        return accepted;
+    }
+
+    @Override
+    public void validateAll(Collection<ElevateRequest> requests) {
+        byBuilding(requests).forEach(LiftRequestsQueueService::validateAll);
+    }
+
+    @Override
+    public CompletableFuture<LiftAssignment> submit(ElevateRequest request) {
+        return buildingOf(request).submit(request);
+    }
+
+    /**
+     * @return totals over every building, including the ones on other nodes
+     */
+    @Override
+    public DispatchQueueStats getStats() {
+        int queueDepth = 0;
+        int remainingCapacity = 0;
+        long accepted = 0;
+        long rejected = 0;
+        long dispatched = 0;
+        long failed = 0;
+        double drainRate = 0;
+        double latencyMicros = 0;
+        long maxLatencyMicros = 0;
+        for (LiftRequestsQueueService node : nodes) {
+            final DispatchQueueStats stats = node.getStats();
+            queueDepth += stats.getQueueDepth();
+            remainingCapacity += stats.getRemainingCapacity();
+            accepted += stats.getAcceptedCount();
+            rejected += stats.getRejectedCount();
+            dispatched += stats.getDispatchedCount();
+            failed += stats.getFailedCount();
+            drainRate += stats.getDrainRatePerSecond();
+            latencyMicros += (double) stats.getAverageLatencyMicros() * stats.getDispatchedCount();
+            maxLatencyMicros = Math.max(maxLatencyMicros, stats.getMaxLatencyMicros());
+        }
+        return DispatchQueueStats.builder()
+                .queueDepth(queueDepth)
+                .remainingCapacity(remainingCapacity)
+                .acceptedCount(accepted)
+                .rejectedCount(rejected)
+                .dispatchedCount(dispatched)
+                .failedCount(failed)
+                .drainRatePerSecond(drainRate)
+                .averageLatencyMicros((dispatched == 0) ? 0 : (long) (latencyMicros / dispatched))
+                .maxLatencyMicros(maxLatencyMicros)
+                .build();
+    }
+
+    private Map<LiftRequestsQueueService, List<ElevateRequest>> byBuilding(Collection<ElevateRequest> requests) {
+        final Map<LiftRequestsQueueService, List<ElevateRequest>> requestsByBuilding = new LinkedHashMap<>();
+        for (ElevateRequest request : requests) {
+            requestsByBuilding.computeIfAbsent(buildingOf(request), building -> new ArrayList<>()).add(request);
+        }
+        return requestsByBuilding;
+    }
+
+    private LiftRequestsQueueService buildingOf(ElevateRequest request) {
+        final String buildingId = request.getBuildingId();
+        if (buildingId == null) {
+            if (singleBuilding == null) {
+                throw new IllegalArgumentException(String.format("Building id is required, there are %s buildings", buildings.size()));
+            }
+            return singleBuilding;
+        }
+        final LiftRequestsQueueService building = buildings.get(buildingId);
+        if (building == null) {
+            throw new IllegalArgumentException(String.format("invalid building %s", buildingId));
+        }
+        return building;
+    }
+}
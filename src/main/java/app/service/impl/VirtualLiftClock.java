@@ -0,0 +1,39 @@
+package app.service.impl;
+
+import app.service.LiftClock;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time that only moves when the event scheduler jumps it to the next due event, so simulations
+ * run as fast as the events can be processed.
+ */
+public class VirtualLiftClock implements LiftClock {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Override
+    public long nanoTime() {
+        return now.get();
+    }
+
+    @Override
+    public void sleep(long nanos) {
+        throw new RuntimeException("A virtual clock can't block threads, use the event-driven engine");
+    }
+
+    @Override
+    public long toWallNanos(long nanos) {
+        return 0;
+    }
+
+    @Override
+    public boolean isVirtual() {
+        return true;
+    }
+
+    @Override
+    public void advanceTo(long nanoTime) {
+        now.accumulateAndGet(nanoTime, Math::max);
+    }
+}
@@ -0,0 +1,267 @@
+package app.service.impl;
+
+import app.domain.enums.Direction;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lift state changes as 12-byte records (type, lift number, value) in numbered log files. Writers
+ * claim a slot of a lock-free ring and publish a record into it, so lifts and request threads never
+ * contend on a lock; a single flusher thread takes the published records in order and writes and
+ * fsyncs them, so every record appended while one fsync runs is committed by the next.
+ * Writers wait only when the ring fills up faster than the disk takes it.
+ */
+@Slf4j
+final class WriteAheadLog implements LiftStateLog, Closeable {
+
+    static final int RECORD_SIZE = 12;
+
+    static final int PENDING_STOP = 1;
+
+    static final int PENDING_STOP_DRAINED = 2;
+
+    static final int BUTTON_ON = 3;
+
+    static final int BUTTON_OFF = 4;
+
+    static final int FLOOR = 5;
+
+    static final int DIRECTION = 6;
+
+    private static final int CAPACITY = 65_536;
+
+    private static final int FIELD_BITS = 28;
+
+    private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+
+    /**
+     * Set on every record in the ring, so an empty slot reads as zero.
+     */
+    private static final long PUBLISHED = 1L << 63;
+
+    private static final long FULL_RING_BACKOFF_NANOS = 10_000;
+
+    private static final long IDLE_FLUSHER_PARK_NANOS = 1_000_000;
+
+    private final Path directory;
+
+    private final AtomicLongArray ring = new AtomicLongArray(CAPACITY);
+
+    private final AtomicLong claimed = new AtomicLong();
+
+    /**
+     * Next slot to take out of the ring; written under {@link #writeLock} only.
+     */
+    private volatile long taken;
+
+    /**
+     * Held while records are taken and written, so rolling to the next file never overtakes a batch.
+     */
+    private final Lock writeLock = new ReentrantLock();
+
+    private final ByteBuffer batch = ByteBuffer.allocateDirect(RECORD_SIZE * CAPACITY);
+
+    private final Thread flusher;
+
+    private volatile boolean flusherIdle;
+
+    private FileChannel channel;
+
+    private long sequence;
+
+    private volatile boolean closed;
+
+    WriteAheadLog(Path directory, long sequence) throws IOException {
+        this.directory = directory;
+        this.sequence = sequence;
+        this.channel = open(sequence);
+        flusher = new Thread(this::flushContinuously, "lift-state-log");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    static Path fileOf(Path directory, long sequence) {
+        return directory.resolve(String.format("wal-%019d.log", sequence));
+    }
+
+    @Override
+    public void pendingStop(int lift, int floor) {
+        append(PENDING_STOP, lift, floor);
+    }
+
+    @Override
+    public void pendingStopDrained(int lift, int floor) {
+        append(PENDING_STOP_DRAINED, lift, floor);
+    }
+
+    @Override
+    public void buttonOn(int lift, int floor) {
+        append(BUTTON_ON, lift, floor);
+    }
+
+    @Override
+    public void buttonOff(int lift, int floor) {
+        append(BUTTON_OFF, lift, floor);
+    }
+
+    @Override
+    public void floor(int lift, int floor) {
+        append(FLOOR, lift, floor);
+    }
+
+    @Override
+    public void direction(int lift, Direction direction) {
+        append(DIRECTION, lift, direction.ordinal());
+    }
+
+    /**
+     * Commits what was appended so far to the current file and starts the next one.
+     *
+     * @return sequence number of the new file, records appended from now on go there
+     */
+    long roll() throws IOException {
+        writeLock.lock();
+        try {
+            takeUpTo(claimed.get());
+            writeTo(channel, batch);
+            channel.close();
+            channel = open(++sequence);
+            return sequence;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            takeUpTo(claimed.get());
+            closed = true;
+            writeTo(channel, batch);
+            channel.close();
+            LockSupport.unpark(flusher);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void append(int type, int lift, int value) {
+        if (lift < 0 || lift > FIELD_MASK || value < 0 || value > FIELD_MASK) {
+            throw new RuntimeException(String.format("Can't log lift %s value %s", lift, value));
+        }
+        final long slot = claimed.getAndIncrement();
+        while (slot - taken >= CAPACITY) {
+            if (closed) {
+                return;
+            }
+            LockSupport.parkNanos(FULL_RING_BACKOFF_NANOS);
+        }
+        ring.set(indexOf(slot), PUBLISHED | (long) type << (2 * FIELD_BITS) | (long) lift << FIELD_BITS | value);
+        if (flusherIdle) {
+            flusherIdle = false;
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    private void flushContinuously() {
+        try {
+            while (!closed) {
+                if (!isPublished(taken)) {
+                    flusherIdle = true;
+                    if (!isPublished(taken) && !closed) {
+                        LockSupport.parkNanos(IDLE_FLUSHER_PARK_NANOS);
+                    }
+                    flusherIdle = false;
+                    continue;
+                }
+                writeLock.lock();
+                try {
+                    if (closed) {
+                        return;
+                    }
+                    takePublished(Long.MAX_VALUE);
+                    if (batch.position() > 0) {
+                        writeTo(channel, batch);
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+        } catch (IOException e) {
+            log.error("Lift state log stopped, changes are no longer persisted", e);
+            closed = true;
+        }
+    }
+
+    /**
+     * Takes every record claimed before {@code boundary}, waiting for the ones still being published.
+     */
+    private void takeUpTo(long boundary) throws IOException {
+        while (taken < boundary && !closed) {
+            takePublished(boundary);
+            if (!batch.hasRemaining()) {
+                writeTo(channel, batch);
+            } else if (taken < boundary) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Moves records below {@code boundary} from the ring into the batch, in order, up to the first
+     * one still being published. Frees their slots for writers waiting on a full ring.
+     */
+    private void takePublished(long boundary) {
+        long next = taken;
+        while (next < boundary && batch.hasRemaining()) {
+            final int index = indexOf(next);
+            final long record = ring.get(index);
+            if (record == 0) {
+                break;
+            }
+            ring.set(index, 0);
+            batch.putInt((int) (record >>> (2 * FIELD_BITS)) & 0x7F)
+                    .putInt((int) ((record >>> FIELD_BITS) & FIELD_MASK))
+                    .putInt((int) (record & FIELD_MASK));
+            next++;
+        }
+        taken = next;
+    }
+
+    private boolean isPublished(long slot) {
+        return ring.get(indexOf(slot)) != 0;
+    }
+
+    private static int indexOf(long slot) {
+        return (int) slot & (CAPACITY - 1);
+    }
+
+    private static void writeTo(FileChannel target, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        buffer.clear();
+        target.force(false);
+    }
+
+    private FileChannel open(long fileSequence) throws IOException {
+        return FileChannel.open(fileOf(directory, fileSequence),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+}
@@ -0,0 +1,117 @@
+package app.domain;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the bitset scans against plain scans over a boolean per floor, around the word boundaries in particular.
+ */
+public class LiftButtonsTest {
+
+    private static final int[] FLOOR_QUANTITIES = {1, 2, 63, 64, 65, 127, 128, 129, 200, 300};
+
+    @Test
+    public void scansMatchLinearScanOnRandomButtons() {
+        final Random random = new Random(42);
+        for (int floorQuantity : FLOOR_QUANTITIES) {
+            for (int round = 0; round < 200; round++) {
+                final LiftButtons buttons = new LiftButtons(floorQuantity);
+                final boolean[] pressed = new boolean[floorQuantity];
+                final double density = random.nextDouble() * random.nextDouble();
+                for (int floor = 0; floor < floorQuantity; floor++) {
+                    if (random.nextDouble() < density) {
+                        buttons.turnOnButtonAtFloor(floor);
+                        pressed[floor] = true;
+                    }
+                }
+                assertMatches(buttons, pressed);
+            }
+        }
+    }
+
+    @Test
+    public void scansMatchLinearScanAtWordBoundaries() {
+        for (int floorQuantity : FLOOR_QUANTITIES) {
+            for (int floor : new int[]{0, 1, 62, 63, 64, 65, 127, 128, floorQuantity - 2, floorQuantity - 1}) {
+                if (floor < 0 || floor >= floorQuantity) {
+                    continue;
+                }
+                final LiftButtons buttons = new LiftButtons(floorQuantity);
+                final boolean[] pressed = new boolean[floorQuantity];
+                buttons.turnOnButtonAtFloor(floor);
+                pressed[floor] = true;
+                assertMatches(buttons, pressed);
+
+                buttons.turnOffButtonAtFloor(floor);
+                pressed[floor] = false;
+                assertMatches(buttons, pressed);
+            }
+        }
+    }
+
+    @Test
+    public void wordPressesCountNewButtonsOnly() {
+        final LiftButtons buttons = new LiftButtons(130);
+        buttons.turnOnButtonAtFloor(64);
+        buttons.turnOnButtonsInWord(1, 0b11L | (1L << 63));
+
+        assertThat(buttons.getPressedFloors()).containsExactly(64, 65, 127);
+        assertThat(buttons.getPressedCount()).isEqualTo(3);
+        assertThat(buttons.getNextOnTheWayUp(65)).isEqualTo(127);
+        assertThat(buttons.getNextOnTheWayDown(127)).isEqualTo(65);
+    }
+
+    @Test
+    public void emptyButtonsHaveNoNextFloor() {
+        final LiftButtons buttons = new LiftButtons(64);
+
+        assertThat(buttons.isEveryButtonTurnedOff()).isTrue();
+        assertThat(buttons.getNextOnTheWayUp(-1)).isEqualTo(LiftButtons.NO_FLOOR);
+        assertThat(buttons.getNextOnTheWayDown(64)).isEqualTo(LiftButtons.NO_FLOOR);
+    }
+
+    private static void assertMatches(LiftButtons buttons, boolean[] pressed) {
+        final int floorQuantity = pressed.length;
+        final List<Integer> pressedFloors = new ArrayList<>();
+        for (int floor = 0; floor < floorQuantity; floor++) {
+            assertThat(buttons.isButtonPressed(floor)).isEqualTo(pressed[floor]);
+            if (pressed[floor]) {
+                pressedFloors.add(floor);
+            }
+        }
+        assertThat(buttons.getPressedFloors()).isEqualTo(pressedFloors);
+        assertThat(buttons.getPressedCount()).isEqualTo(pressedFloors.size());
+        assertThat(buttons.isEveryButtonTurnedOff()).isEqualTo(pressedFloors.isEmpty());
+        for (int current = -1; current <= floorQuantity; current++) {
+            assertThat(buttons.getNextOnTheWayUp(current))
+                    .as("up from %s of %s", current, floorQuantity)
+                    .isEqualTo(linearUp(pressed, current));
+            assertThat(buttons.getNextOnTheWayDown(current))
+                    .as("down from %s of %s", current, floorQuantity)
+                    .isEqualTo(linearDown(pressed, current));
+        }
+    }
+
+    private static int linearUp(boolean[] pressed, int currentFloor) {
+        for (int floor = currentFloor + 1; floor < pressed.length; floor++) {
+            if (pressed[floor]) {
+                return floor;
+            }
+        }
+        return LiftButtons.NO_FLOOR;
+    }
+
+    private static int linearDown(boolean[] pressed, int currentFloor) {
+        for (int floor = Math.min(currentFloor, pressed.length) - 1; floor >= 0; floor--) {
+            if (pressed[floor]) {
+                return floor;
+            }
+        }
+        return LiftButtons.NO_FLOOR;
+    }
+}
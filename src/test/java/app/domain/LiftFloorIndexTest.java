@@ -0,0 +1,38 @@
+package app.domain;
+
+import app.domain.enums.Direction;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LiftFloorIndexTest {
+
+    @Test
+    public void fullLiftReversingAtFloorStaysIndexed() {
+        final LiftFloorIndex index = new LiftFloorIndex(new String[]{"1"});
+        index.add(0, 500, 7, Direction.UP);
+        index.setFull(0, 500, 7, Direction.UP, true);
+
+        index.move(0, 500, 7, Direction.UP, 7, Direction.DOWN);
+
+        assertThat(index.findClosest(3)).contains("1");
+    }
+
+    @Test
+    public void fullLiftIsOnlyFoundWhenNoOtherLiftIs() {
+        final LiftFloorIndex index = new LiftFloorIndex(new String[]{"1", "2"});
+        index.add(0, 500, 3, Direction.ANY);
+        index.add(1, 500, 9, Direction.ANY);
+        index.setFull(0, 500, 3, Direction.ANY, true);
+
+        assertThat(index.findClosest(3)).contains("2");
+        assertThat(index.findClosest(3, Direction.ANY)).contains("2");
+
+        index.move(1, 500, 9, Direction.ANY, 10, Direction.UP);
+        index.setFull(1, 500, 10, Direction.UP, true);
+        assertThat(index.findClosest(3)).contains("1");
+
+        index.setFull(0, 500, 3, Direction.ANY, false);
+        assertThat(index.findClosest(3, Direction.ANY)).contains("1");
+    }
+}
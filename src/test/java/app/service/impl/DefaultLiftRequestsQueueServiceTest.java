@@ -0,0 +1,78 @@
+package app.service.impl;
+
+import app.config.LiftsConfiguration;
+import app.domain.ElevateRequest;
+import app.domain.enums.Direction;
+import app.service.LiftRequestsDispatchingService;
+import app.service.LiftRequestsQueueService;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class DefaultLiftRequestsQueueServiceTest {
+
+    private final DefaultLiftRequestsQueueService queueService =
+            new DefaultLiftRequestsQueueService(mock(LiftRequestsDispatchingService.class), 10, new LiftsConfiguration());
+
+    @Test
+    public void invalidCallIsRefusedBeforeItIsQueued() {
+        assertThat(queueService.submit(call(10, Direction.UP)))
+                .hasFailedWithThrowableThat().isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> queueService.enqueueAll(List.of(call(3, null)))).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(queueService.getStats().getQueueDepth()).isZero();
+    }
+
+    @Test
+    public void batchWithAnInvalidCallIsRefusedWhole() {
+        assertThatThrownBy(() -> queueService.enqueueAll(List.of(call(3, Direction.UP), call(-1, Direction.DOWN))))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(queueService.getStats().getQueueDepth()).isZero();
+        assertThat(queueService.enqueueAll(List.of(call(3, Direction.UP), call(9, Direction.DOWN)))).isEqualTo(2);
+    }
+
+    @Test
+    public void batchOverBuildingsWithAnInvalidCallIsRefusedWhole() {
+        final DefaultLiftRequestsQueueService north =
+                new DefaultLiftRequestsQueueService(mock(LiftRequestsDispatchingService.class), 10, new LiftsConfiguration());
+        final DefaultLiftRequestsQueueService south =
+                new DefaultLiftRequestsQueueService(mock(LiftRequestsDispatchingService.class), 5, new LiftsConfiguration());
+        final LiftRequestsQueueService east = mock(LiftRequestsQueueService.class);
+        doThrow(new IllegalArgumentException("invalid floor 7")).when(east).validateAll(any());
+        final ShardedLiftRequestsQueueService queueService = new ShardedLiftRequestsQueueService(
+                new BuildingShards(List.of(shard("north", north), shard("south", south))), Map.of("east", east));
+
+        assertThatThrownBy(() -> queueService.enqueueAll(List.of(call("north", 3), call("south", 7))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> queueService.enqueueAll(List.of(call("north", 3), call("south", 1), call("east", 7))))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(north.getStats().getQueueDepth()).isZero();
+        assertThat(south.getStats().getQueueDepth()).isZero();
+        verify(east, never()).enqueueAll(any());
+        assertThat(queueService.enqueueAll(List.of(call("north", 3), call("south", 4)))).isEqualTo(2);
+    }
+
+    private static BuildingShard shard(String buildingId, DefaultLiftRequestsQueueService queueService) {
+        return new BuildingShard(buildingId, mock(AbstractLiftEngineService.class), mock(LiftRequestsDispatchingService.class),
+                queueService, mock(LiftStateStream.class), List.of());
+    }
+
+    private static ElevateRequest call(String buildingId, int floor) {
+        return ElevateRequest.builder().buildingId(buildingId).floorNumber(floor).direction(Direction.UP).build();
+    }
+
+    private static ElevateRequest call(int floor, Direction direction) {
+        return ElevateRequest.builder().floorNumber(floor).direction(direction).build();
+    }
+}
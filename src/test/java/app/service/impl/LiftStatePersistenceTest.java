@@ -0,0 +1,195 @@
+package app.service.impl;
+
+import app.domain.Lift;
+import app.domain.LiftButtons;
+import app.domain.enums.Direction;
+import app.domain.enums.LiftState;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LiftStatePersistenceTest {
+
+    private static final int FLOORS = 100;
+
+    private static final long TRAVEL_NANOS_PER_FLOOR = 1_000_000;
+
+    private static final Duration NO_SNAPSHOTS = Duration.ofHours(1);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recoversTenThousandLiftsWithinASecond() throws IOException {
+        final int liftsQuantity = 10_000;
+        final Path directory = folder.getRoot().toPath();
+        final LiftStateStore liftsState = new LiftStateStore("b", newLifts(liftsQuantity), 16, 1.0);
+        final Random random = new Random(7);
+        try (LiftStatePersistence persistence = new LiftStatePersistence(directory, NO_SNAPSHOTS)) {
+            persistence.start(liftsState);
+            for (int i = 0; i < liftsQuantity; i++) {
+                liftsState.setCurrentFloorAndState(i, random.nextInt(FLOORS), LiftState.MOVING);
+                liftsState.setDirection(i, Direction.DOWN);
+                liftsState.turnOnButtonAtFloor(i, random.nextInt(FLOORS));
+                liftsState.addPendingStop(i, random.nextInt(FLOORS));
+            }
+        }
+
+        final long started = System.nanoTime();
+        final List<Lift> lifts = new LiftStatePersistence(directory, NO_SNAPSHOTS)
+                .recover("b", liftsQuantity, FLOORS, TRAVEL_NANOS_PER_FLOOR).orElseThrow();
+        final long elapsed = System.nanoTime() - started;
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(elapsed)).isLessThan(1_000);
+        assertThat(lifts).hasSize(liftsQuantity);
+        for (int i = 0; i < liftsQuantity; i++) {
+            final Lift lift = lifts.get(i);
+            assertThat(lift.getBuildingId()).isEqualTo("b");
+            assertThat(lift.getId()).isEqualTo(liftsState.getId(i));
+            assertThat(lift.getState()).isEqualTo(LiftState.STOPPED);
+            assertThat(lift.getCurrentFloor()).isEqualTo(liftsState.getCurrentFloor(i));
+            assertThat(lift.getDirection()).isEqualTo(Direction.DOWN);
+            for (int w = 0; w < lift.getButtons().getWordsQuantity(); w++) {
+                assertThat(lift.getButtons().getWord(w))
+                        .isEqualTo(liftsState.getButtons(i).getWord(w) | liftsState.getPendingStops(i, w));
+            }
+        }
+    }
+
+    @Test
+    public void recoveryIgnoresRecordTornByCrash() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        final LiftStateStore liftsState = new LiftStateStore("b", newLifts(3), 16, 1.0);
+        try (LiftStatePersistence persistence = new LiftStatePersistence(directory, NO_SNAPSHOTS)) {
+            persistence.start(liftsState);
+            liftsState.setCurrentFloorAndState(1, 4, LiftState.MOVING);
+            liftsState.addPendingStop(2, 9);
+        }
+        // the last batch before the crash made it to disk up to the middle of a record
+        appendToLog(directory, ByteBuffer.allocate(WriteAheadLog.RECORD_SIZE + 7)
+                .putInt(WriteAheadLog.BUTTON_ON).putInt(0).putInt(5)
+                .putInt(WriteAheadLog.FLOOR).putShort((short) 0).put((byte) 0));
+
+        final List<Lift> lifts = new LiftStatePersistence(directory, NO_SNAPSHOTS)
+                .recover("b", 3, FLOORS, TRAVEL_NANOS_PER_FLOOR).orElseThrow();
+
+        assertThat(lifts.get(0).getButtons().isButtonPressed(5)).isTrue();
+        assertThat(lifts.get(0).getCurrentFloor()).isEqualTo(0);
+        assertThat(lifts.get(1).getCurrentFloor()).isEqualTo(4);
+        assertThat(lifts.get(2).getButtons().isButtonPressed(9)).isTrue();
+    }
+
+    @Test
+    public void recoveryRefusesCorruptRecord() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        try (LiftStatePersistence persistence = new LiftStatePersistence(directory, NO_SNAPSHOTS)) {
+            persistence.start(new LiftStateStore("b", newLifts(3), 16, 1.0));
+        }
+        appendToLog(directory, ByteBuffer.allocate(WriteAheadLog.RECORD_SIZE).putInt(WriteAheadLog.FLOOR).putInt(1).putInt(FLOORS));
+
+        assertThatThrownBy(() -> new LiftStatePersistence(directory, NO_SNAPSHOTS).recover("b", 3, FLOORS, TRAVEL_NANOS_PER_FLOOR))
+                .hasMessageContaining("Corrupt lift state log");
+    }
+
+    /**
+     * Writers outrun the ring while the log keeps rolling over; every record must land in some file,
+     * in the order each writer appended it.
+     */
+    @Test
+    public void keepsEveryRecordInOrderAcrossRollOvers() throws Exception {
+        final int writers = 8;
+        final int recordsPerWriter = 50_000;
+        final Path directory = folder.getRoot().toPath();
+        final ExecutorService executor = Executors.newFixedThreadPool(writers);
+        final CountDownLatch start = new CountDownLatch(1);
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 1)) {
+            final List<Future<?>> appended = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                final int lift = writer;
+                appended.add(executor.submit(() -> {
+                    start.await();
+                    for (int floor = 0; floor < recordsPerWriter; floor++) {
+                        writeAheadLog.pendingStop(lift, floor);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            while (!appended.stream().allMatch(Future::isDone)) {
+                writeAheadLog.roll();
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+            for (Future<?> future : appended) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final int[] next = new int[writers];
+        for (Path file : logs(directory)) {
+            final ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(file));
+            assertThat(records.remaining() % WriteAheadLog.RECORD_SIZE).isZero();
+            while (records.hasRemaining()) {
+                assertThat(records.getInt()).isEqualTo(WriteAheadLog.PENDING_STOP);
+                final int lift = records.getInt();
+                assertThat(records.getInt()).isEqualTo(next[lift]++);
+            }
+        }
+        assertThat(next).containsOnly(recordsPerWriter);
+    }
+
+    private static List<Lift> newLifts(int quantity) {
+        return IntStream.rangeClosed(1, quantity)
+                .mapToObj(k -> Lift.builder()
+                        .buildingId("b")
+                        .id(String.valueOf(k))
+                        .travelNanosPerFloor(TRAVEL_NANOS_PER_FLOOR)
+                        .tonnage(400 + k % 1000)
+                        .buttons(new LiftButtons(FLOORS))
+                        .state(LiftState.STOPPED)
+                        .direction(Direction.UP)
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private static void appendToLog(Path directory, ByteBuffer bytes) throws IOException {
+        final List<Path> logs = logs(directory);
+        try (FileChannel channel = FileChannel.open(logs.get(logs.size() - 1), StandardOpenOption.APPEND)) {
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    private static List<Path> logs(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("wal-"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
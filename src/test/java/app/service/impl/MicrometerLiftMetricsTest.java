@@ -0,0 +1,65 @@
+package app.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MicrometerLiftMetricsTest {
+
+    /**
+     * Lifts board passengers from many threads as the minutes roll over their slots; whatever the
+     * interleaving, the last five minutes must hold every boarding made in them.
+     */
+    @Test
+    public void handlingCapacityKeepsEveryBoardingAcrossMinuteRollOvers() throws Exception {
+        final int lifts = 8;
+        final int minutes = 40;
+        final int transfersPerMinute = 5_000;
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final VirtualLiftClock liftClock = new VirtualLiftClock();
+        final MicrometerLiftMetrics metrics = new MicrometerLiftMetrics(meterRegistry, liftClock, "b");
+        metrics.registerLifts(IntStream.range(0, lifts).mapToObj(String::valueOf).collect(Collectors.toList()), 10);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(lifts);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            final List<Future<?>> transfers = new ArrayList<>();
+            for (int lift = 0; lift < lifts; lift++) {
+                final int liftIndex = lift;
+                transfers.add(executor.submit(() -> {
+                    start.await();
+                    for (int minute = 0; minute < minutes; minute++) {
+                        for (int transfer = 0; transfer < transfersPerMinute; transfer++) {
+                            metrics.onPassengerTransfer(liftIndex, 0, 0, 1, 1, 10,
+                                    TimeUnit.MINUTES.toNanos(minute) + transfer);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : transfers) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        liftClock.advanceTo(TimeUnit.MINUTES.toNanos(minutes - 1));
+
+        assertThat(meterRegistry.get("lift.handling.capacity").gauge().value())
+                .isEqualTo(5.0 * lifts * transfersPerMinute);
+        assertThat(meterRegistry.get("lift.passengers.boarded").functionCounter().count())
+                .isEqualTo((double) minutes * lifts * transfersPerMinute);
+    }
+}
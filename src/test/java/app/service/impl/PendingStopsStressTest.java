@@ -0,0 +1,208 @@
+package app.service.impl;
+
+import app.config.LiftsConfiguration;
+import app.service.LiftEventListener;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Producers register stops from many threads at once while the lifts move, go idle and park, and every floor
+ * asked of a lift must be stopped at after it was last asked for. Stops and requests are ordered by a shared
+ * counter taken before each request, so a stop racing with a request is never taken for serving it.
+ */
+@RunWith(Parameterized.class)
+public class PendingStopsStressTest {
+
+    private static final int LIFTS = 8;
+
+    private static final int FLOORS = 20;
+
+    private static final int PRODUCERS = 8;
+
+    private static final int REQUESTS_PER_PRODUCER = 20_000;
+
+    private static final int IDLE_REQUESTS = 2_000;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLongArray requested = new AtomicLongArray(LIFTS * FLOORS);
+
+    private final AtomicLongArray served = new AtomicLongArray(LIFTS * FLOORS);
+
+    private final String engineType;
+
+    private final boolean lazyStart;
+
+    private AbstractLiftEngineService engine;
+
+    private List<String> liftIds;
+
+    public PendingStopsStressTest(String engineType, boolean lazyStart) {
+        this.engineType = engineType;
+        this.lazyStart = lazyStart;
+    }
+
+    @Parameterized.Parameters(name = "{0}, lazy start {1}")
+    public static Collection<Object[]> engines() {
+        return Arrays.asList(new Object[][]{
+                {"threaded", false}, {"threaded", true}, {"event-driven", false}, {"event-driven", true}});
+    }
+
+    @After
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void everyRequestedStopIsServed() throws Exception {
+        startEngine(lift -> {
+        });
+        runProducers(() -> {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < REQUESTS_PER_PRODUCER; i++) {
+                request(random.nextInt(LIFTS), random.nextInt(FLOORS));
+            }
+        });
+
+        awaitServed(TimeUnit.SECONDS.toNanos(30));
+        assertThat(unserved()).as("lift/floor requested after its last stop").isEmpty();
+    }
+
+    /**
+     * A stop is registered from another thread each time a lift runs out of stops, after its last check for
+     * pending stops and before it parks, which is where a stop can be left behind with nobody to wake the lift.
+     */
+    @Test
+    public void stopsRequestedAsLiftsGoIdleAreServed() throws Exception {
+        final ExecutorService requester = Executors.newSingleThreadExecutor();
+        final AtomicInteger requestsLeft = new AtomicInteger(IDLE_REQUESTS);
+        startEngine(lift -> {
+            if (requestsLeft.getAndDecrement() > 0) {
+                try {
+                    requester.submit(() -> request(lift, ThreadLocalRandom.current().nextInt(FLOORS))).get(1, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        try {
+            for (int lift = 0; lift < LIFTS; lift++) {
+                request(lift, FLOORS - 1);
+            }
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (requestsLeft.get() > 0 && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            awaitServed(TimeUnit.SECONDS.toNanos(5));
+        } finally {
+            requester.shutdownNow();
+        }
+
+        assertThat(requestsLeft.get()).as("requests left when the lifts stopped going idle").isLessThanOrEqualTo(0);
+        assertThat(unserved()).as("lift/floor requested after its last stop").isEmpty();
+    }
+
+    private void request(int lift, int floor) {
+        requested.accumulateAndGet(lift * FLOORS + floor, sequence.incrementAndGet(), Math::max);
+        engine.enqueueStopRequest(liftIds.get(lift), floor);
+    }
+
+    private void runProducers(Runnable producer) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            final Thread thread = new Thread(() -> {
+                awaitQuietly(start);
+                producer.run();
+            }, "stop-producer-" + p);
+            thread.start();
+            producers.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : producers) {
+            thread.join();
+        }
+    }
+
+    private boolean awaitServed(long timeoutNanos) {
+        final long deadline = System.nanoTime() + timeoutNanos;
+        while (!unserved().isEmpty()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+        return true;
+    }
+
+    /**
+     * @param onIdle called on the lift's thread, with its lock held, whenever it runs out of stops
+     */
+    private void startEngine(IntConsumer onIdle) {
+        final LiftsConfiguration liftsConfiguration = new LiftsConfiguration();
+        liftsConfiguration.setTravelTimePerFloor(Duration.ofNanos(100_000));
+        liftsConfiguration.setSimulatedPassengers(false);
+        liftsConfiguration.setLazyStart(lazyStart);
+        final ScaledLiftClock liftClock = new ScaledLiftClock(1);
+        engine = "threaded".equals(engineType)
+                ? new DefaultLiftEngineService(liftsConfiguration, liftClock)
+                : new EventDrivenLiftEngineService(liftsConfiguration, liftClock);
+        engine.setLiftsQuantity(LIFTS);
+        engine.setFloorsQuantity(FLOORS);
+        engine.addLiftEventListener(new LiftEventListener() {
+            @Override
+            public void registerLifts(List<String> ids, int floorsQuantity) {
+                liftIds = ids;
+            }
+
+            @Override
+            public void onStop(int lift, int floor, long nanoTime) {
+                served.accumulateAndGet(lift * FLOORS + floor, sequence.incrementAndGet(), Math::max);
+            }
+
+            @Override
+            public void onIdle(int lift, int floor, long nanoTime) {
+                onIdle.accept(lift);
+            }
+        });
+        engine.initialize();
+    }
+
+    private List<String> unserved() {
+        final List<String> unserved = new ArrayList<>();
+        for (int i = 0; i < LIFTS * FLOORS; i++) {
+            if (requested.get(i) > served.get(i)) {
+                unserved.add((i / FLOORS) + "/" + (i % FLOORS));
+            }
+        }
+        return unserved;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
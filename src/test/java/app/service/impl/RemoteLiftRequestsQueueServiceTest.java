@@ -0,0 +1,50 @@
+package app.service.impl;
+
+import app.domain.ElevateRequest;
+import app.domain.LiftAssignment;
+import app.domain.enums.Direction;
+import org.junit.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RemoteLiftRequestsQueueServiceTest {
+
+    @Test
+    public void slowNodeGetsRequestsRefusedOnceTheForwarderIsFull() {
+        final CountDownLatch nodeAnswers = new CountDownLatch(1);
+        final RestTemplate restTemplate = mock(RestTemplate.class);
+        when(restTemplate.postForEntity(anyString(), any(), eq(LiftAssignment.class))).thenAnswer(invocation -> {
+            nodeAnswers.await();
+            return ResponseEntity.accepted().build();
+        });
+        final ElevateRequest request = ElevateRequest.builder().buildingId("east").floorNumber(3).direction(Direction.UP).build();
+        final List<CompletableFuture<LiftAssignment>> forwarded = new ArrayList<>();
+
+        try (RemoteLiftRequestsQueueService queueService = new RemoteLiftRequestsQueueService(restTemplate, "http://east")) {
+            for (int i = 0; i < RemoteLiftRequestsQueueService.FORWARDER_THREADS + RemoteLiftRequestsQueueService.FORWARDER_QUEUE_CAPACITY; i++) {
+                forwarded.add(queueService.submit(request));
+            }
+            final CompletableFuture<LiftAssignment> refused = queueService.submit(request);
+            nodeAnswers.countDown();
+
+            assertThatThrownBy(refused::join).hasCauseInstanceOf(RejectedExecutionException.class);
+            for (CompletableFuture<LiftAssignment> future : forwarded) {
+                assertThat(future.join()).isNull();
+            }
+        }
+    }
+}
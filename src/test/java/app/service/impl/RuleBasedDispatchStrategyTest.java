@@ -0,0 +1,134 @@
+package app.service.impl;
+
+import app.domain.ElevateRequest;
+import app.domain.LiftFloorIndex;
+import app.domain.enums.Direction;
+import app.service.LiftEngineService;
+import app.service.LiftMetrics;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Moves a fleet at random while keeping its floor index up to date the way LiftStateStore does, and checks
+ * every pick against a scan and sort of the whole fleet, as the dispatcher did before the index.
+ */
+public class RuleBasedDispatchStrategyTest {
+
+    private static final int FLOORS = 30;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Random random = new Random(7);
+
+    private int[] floor;
+
+    private int[] tonnage;
+
+    private Direction[] direction;
+
+    private boolean[] full;
+
+    @Test
+    public void picksTheSameLiftsAsSortingTheFleet() {
+        for (int fleet = 0; fleet < 50; fleet++) {
+            final int size = 1 + random.nextInt(40);
+            final String[] ids = IntStream.range(0, size).mapToObj(Integer::toString).toArray(String[]::new);
+            final LiftFloorIndex index = newFleet(ids);
+            final LiftEngineService liftEngineService = mock(LiftEngineService.class);
+            when(liftEngineService.getLiftFloorIndex()).thenReturn(index);
+            final RuleBasedDispatchStrategy strategy = new RuleBasedDispatchStrategy(LiftMetrics.NONE);
+
+            for (int step = 0; step < 500; step++) {
+                change(index, random.nextInt(size));
+                final ElevateRequest request = ElevateRequest.builder()
+                        .floorNumber(random.nextInt(FLOORS))
+                        .direction(DIRECTIONS[random.nextInt(DIRECTIONS.length)])
+                        .build();
+
+                final String picked = strategy.selectLifts(List.of(request), liftEngineService).get(0);
+
+                assertThat(picked).as("fleet %s step %s, %s", fleet, step, request).isIn(expected(request));
+            }
+        }
+    }
+
+    private LiftFloorIndex newFleet(String[] ids) {
+        floor = new int[ids.length];
+        tonnage = new int[ids.length];
+        direction = new Direction[ids.length];
+        full = new boolean[ids.length];
+        final LiftFloorIndex index = new LiftFloorIndex(ids);
+        for (int lift = 0; lift < ids.length; lift++) {
+            floor[lift] = random.nextInt(FLOORS);
+            tonnage[lift] = 400 + 100 * random.nextInt(3);
+            direction[lift] = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+            index.add(lift, tonnage[lift], floor[lift], direction[lift]);
+        }
+        return index;
+    }
+
+    /**
+     * A floor change, a direction change at the same floor, or the car filling up or emptying.
+     */
+    private void change(LiftFloorIndex index, int lift) {
+        switch (random.nextInt(3)) {
+            case 0:
+                final int newFloor = Math.max(0, Math.min(FLOORS - 1, floor[lift] + random.nextInt(3) - 1));
+                index.move(lift, tonnage[lift], floor[lift], direction[lift], newFloor, direction[lift]);
+                floor[lift] = newFloor;
+                break;
+            case 1:
+                final Direction newDirection = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+                index.move(lift, tonnage[lift], floor[lift], direction[lift], floor[lift], newDirection);
+                direction[lift] = newDirection;
+                break;
+            default:
+                full[lift] = random.nextInt(4) == 0;
+                index.setFull(lift, tonnage[lift], floor[lift], direction[lift], full[lift]);
+        }
+    }
+
+    /**
+     * @return every lift as good as the first one of the first rule that finds any
+     */
+    private Set<String> expected(ElevateRequest request) {
+        final int requested = request.getFloorNumber();
+        final Comparator<Integer> byDistance = Comparator.comparing((Integer lift) -> Math.abs(floor[lift] - requested))
+                .thenComparing(lift -> tonnage[lift]);
+        Set<String> best = best(lift -> !full[lift] && direction[lift] == Direction.ANY, byDistance);
+        if (best.isEmpty()) {
+            best = (request.getDirection() == Direction.UP)
+                    ? best(lift -> !full[lift] && direction[lift] == Direction.UP && floor[lift] < requested,
+                    Comparator.comparing((Integer lift) -> -floor[lift]).thenComparing(lift -> tonnage[lift]))
+                    : best(lift -> !full[lift] && direction[lift] == Direction.DOWN && floor[lift] > requested,
+                    Comparator.comparing((Integer lift) -> floor[lift]).thenComparing(lift -> tonnage[lift]));
+        }
+        if (best.isEmpty()) {
+            best = best(lift -> !full[lift], byDistance);
+        }
+        if (best.isEmpty()) {
+            best = best(lift -> true, byDistance);
+        }
+        return best;
+    }
+
+    private Set<String> best(IntPredicate candidate, Comparator<Integer> order) {
+        final List<Integer> lifts = IntStream.range(0, floor.length).filter(candidate).boxed()
+                .sorted(order).collect(Collectors.toList());
+        return lifts.stream()
+                .filter(lift -> order.compare(lift, lifts.get(0)) == 0)
+                .map(Object::toString)
+                .collect(Collectors.toSet());
+    }
+}
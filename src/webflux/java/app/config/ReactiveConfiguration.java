@@ -0,0 +1,19 @@
+package app.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfiguration {
+
+    /**
+     * Tomcat is still on the classpath for the servlet stack and would otherwise be preferred.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory getNettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,75 @@
+package app.controller;
+
+import app.domain.DispatchQueueStats;
+import app.domain.ElevateRequest;
+import app.domain.LiftAssignment;
+import app.service.LiftRequestsQueueService;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@link LiftRequestController} on the reactive stack: a call is answered with its assignment once
+ * the dispatcher has made it, without holding a thread meanwhile.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/lift-requests")
+@AllArgsConstructor
+public class ReactiveLiftRequestController {
+
+    private final LiftRequestsQueueService liftRequestsQueueService;
+
+    /**
+     * Responses are written from the parallel scheduler rather than the dispatcher thread that completes the assignment.
+     */
+    @PostMapping
+    public Mono<ResponseEntity<LiftAssignment>> dispatch(@RequestBody ElevateRequest request) {
+        return Mono.fromFuture(liftRequestsQueueService.submit(request))
+                .publishOn(Schedulers.parallel())
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(new ResponseEntity<>(HttpStatus.ACCEPTED))
+                .onErrorResume(RejectedExecutionException.class, e -> Mono.just(queueIsFull()));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<Void> enqueueBatch(@RequestBody List<ElevateRequest> requests) {
+        return (liftRequestsQueueService.enqueueAll(requests) == requests.size())
+                ? new ResponseEntity<>(HttpStatus.ACCEPTED)
+                : queueIsFull();
+    }
+
+    /**
+     * Answers 204 when every request of the batch would be taken, 400 otherwise; nothing is queued.
+     */
+    @PostMapping("/batch/validation")
+    public ResponseEntity<Void> validateBatch(@RequestBody List<ElevateRequest> requests) {
+        liftRequestsQueueService.validateAll(requests);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @GetMapping("/queue")
+    public DispatchQueueStats queueStats() {
+        return liftRequestsQueueService.getStats();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> invalidRequest(IllegalArgumentException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    private <T> ResponseEntity<T> queueIsFull() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return new ResponseEntity<>(headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+}